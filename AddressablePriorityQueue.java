@@ -0,0 +1,103 @@
+/**
+ * AddressablePriorityQueue
+ *
+ * The operations of a priority queue over integers whose elements are addressed through the handles
+ * returned by insert. FibonacciHeap and the PairingHeap, RankPairingHeap, BinaryHeap and RadixHeap engines
+ * in FibonacciHeap.java implement it, so callers written against this interface (such as the Dijkstra and
+ * Prim drivers of FibonacciHeap.Graph) can switch engines.
+ *
+ * H is the handle type of the engine and Q the engine itself, so meld only accepts a queue of the same kind.
+ * A handle is valid from insert until its node is removed, and belongs to the queue it was inserted into
+ * or, after a meld, to the queue that took its nodes. Every engine rejects any other handle with
+ * IllegalArgumentException and leaves the queue unchanged.
+ */
+public interface AddressablePriorityQueue<H extends AddressablePriorityQueue.Handle, Q extends AddressablePriorityQueue<H, Q>>
+{
+
+    /**
+     * public boolean isEmpty()
+     *
+     * Returns true if and only if the queue is empty.
+     */
+    boolean isEmpty();
+
+    /**
+     * public H insert(int key)
+     *
+     * Creates a node with the given key, inserts it into the queue and returns its handle.
+     */
+    H insert(int key);
+
+    /**
+     * public H insert(int key, int value)
+     *
+     * Inserts key like insert(key), and stores value as the payload of the new node.
+     */
+    H insert(int key, int value);
+
+    /**
+     * public H findMin()
+     *
+     * Returns the handle of the node whose key is minimal, or null if the queue is empty.
+     */
+    H findMin();
+
+    /**
+     * public void deleteMin()
+     *
+     * Deletes the node containing the minimum key.
+     */
+    void deleteMin();
+
+    /**
+     * public void decreaseKey(H x, int delta)
+     *
+     * Decreases the key of the node x by a non-negative value delta.
+     * Throws IllegalArgumentException if x is not a node of this queue.
+     */
+    void decreaseKey(H x, int delta);
+
+    /**
+     * public void delete(H x)
+     *
+     * Deletes the node x from the queue.
+     * Throws IllegalArgumentException if x is not a node of this queue.
+     */
+    void delete(H x);
+
+    /**
+     * public void meld(Q heap2)
+     *
+     * Moves every node of heap2 into this queue. The handles of heap2 then address nodes of this queue.
+     */
+    void meld(Q heap2);
+
+    /**
+     * public int size()
+     *
+     * Returns the number of elements in the queue.
+     */
+    int size();
+
+    /**
+     * public interface Handle
+     *
+     * A node of a queue, as returned by insert and findMin.
+     */
+    interface Handle
+    {
+        /**
+         * public int getKey()
+         *
+         * Returns the current key of the node.
+         */
+        int getKey();
+
+        /**
+         * public int getValue()
+         *
+         * Returns the payload given to insert, or 0.
+         */
+        int getValue();
+    }
+}
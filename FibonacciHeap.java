@@ -1,18 +1,77 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32C;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
 /**
  * FibonacciHeap
  *
  * An implementation of a Fibonacci Heap over integers.
  */
-public class FibonacciHeap
+public class FibonacciHeap implements AddressablePriorityQueue<FibonacciHeap.HeapNode, FibonacciHeap>
 {
 
     private int size;
     private int trees;
-    private static int links = 0;
-    private static int cuts = 0;
+    private static final LongAdder allLinks = new LongAdder();
+    private static final LongAdder allCuts = new LongAdder();
+    private static final int SNAPSHOT_MAGIC = 0x46494253;     // "FIBS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER = 24;
+    private static final int SNAPSHOT_RECORD = 10;            // key, value, rank byte, flag byte
+    private static final int SNAPSHOT_MARKED = 1;
+    private static final int SNAPSHOT_INDEXED = 2;
+    private static final int SNAPSHOT_BUFFER = SNAPSHOT_RECORD << 12;
+    private static final int SNAPSHOT_WINDOW = SNAPSHOT_RECORD << 20;
     private int marked;
     private HeapNode first;
     private HeapNode min;
+    private HeapNode[] rankTable;
+    private NodeFrontier frontier;
+    private ForkJoinPool pool;
+    private int parallelTrees;
+    private int cutBudget;
+    private HeapNode[] pendingCuts;
+    private int pendingCount;
+    private HeapNode[] updates;
+    private int updateCount;
+    private Owner owner;
+    private IdIndex ids;
+    private final RadixHeap radix;
+    private final HeapMetrics metrics;
 
     /**
      * public FibonacciHeap()
@@ -22,11 +81,56 @@ public class FibonacciHeap
      * Complexity: O(1)
      */
     public FibonacciHeap() {
+        this(Mode.GENERAL);
+    }
+
+    /**
+     * public FibonacciHeap(Mode mode)
+     *
+     * Initialize new heap in the given mode. A MONOTONE heap keeps its nodes in the buckets of a
+     * RadixHeap: insert and decreaseKey are O(1) and deleteMin is O(log C) amortized (C being the
+     * range of the keys), but every key must be at least the last minimum deleted, and the operations
+     * that walk the trees (countersRep, kMin, sortedIterator) are not available.
+     *
+     * Complexity: O(1)
+     */
+    public FibonacciHeap(Mode mode) {
+        this.radix = mode == Mode.MONOTONE ? new RadixHeap() : null;
         this.size = 0;
         this.trees = 0;
         this.marked = 0;
         this.first = null;
         this.min = null;
+        this.rankTable = new HeapNode[0];
+        this.parallelTrees = Integer.MAX_VALUE;
+        this.cutBudget = Integer.MAX_VALUE;
+        this.pendingCuts = new HeapNode[0];
+        this.owner = new Owner();
+        this.metrics = new HeapMetrics() {
+            public int getSize() {
+                return FibonacciHeap.this.size;
+            }
+
+            public int getTrees() {
+                return FibonacciHeap.this.trees;
+            }
+
+            public int getMarked() {
+                return FibonacciHeap.this.marked;
+            }
+        };
+    }
+
+    /**
+     * public Mode getMode()
+     *
+     * Returns the mode the heap was created with.
+     *
+     * Complexity: O(1)
+     */
+    public Mode getMode()
+    {
+        return this.radix != null ? Mode.MONOTONE : Mode.GENERAL;
     }
 
     /**
@@ -52,7 +156,40 @@ public class FibonacciHeap
      */
     public HeapNode insert(int key)
     {
-        HeapNode node=new HeapNode(key);
+        return insertNode(new HeapNode(key));
+    }
+
+    /**
+     * public HeapNode insert(int key, int value)
+     *
+     * Inserts the given key like insert(key), and stores value as the payload of the new node.
+     *
+     * Returns the newly created node.
+     * Complexity: O(1)
+     */
+    public HeapNode insert(int key, int value)
+    {
+        HeapNode node = new HeapNode(key);
+        node.setValue(value);
+        return insertNode(node);
+    }
+
+    /**
+     * insertNode(HeapNode node)
+     *
+     * Inserts the given single node as a new tree and returns it.
+     * Complexity: O(1)
+     */
+    private HeapNode insertNode(HeapNode node)
+    {
+        int key = node.getKey();
+        if (this.radix != null) {
+            this.radix.insertNode(node);
+            node.owner = this.owner;
+            this.size++;
+            return node;
+        }
+        node.owner = this.owner;
         if(!this.isEmpty()) {
             node.setPrev(this.first.getPrev());
             this.first.getPrev().setNext(node);
@@ -76,6 +213,97 @@ public class FibonacciHeap
         return node;
     }
 
+    /**
+     * public HeapNode[] insertAll(int[] keys)
+     *
+     * Inserts all the given keys, as insert() would, and returns their nodes in the same order.
+     * The new nodes are chained into one list in a single pass and spliced into the root list once.
+     *
+     * Complexity: O(keys.length)
+     */
+    public HeapNode[] insertAll(int[] keys)
+    {
+        return insertAll(keys, false);
+    }
+
+    /**
+     * public HeapNode[] insertAll(IntStream keys)
+     *
+     * Inserts all the keys of the stream, see insertAll(int[]).
+     *
+     * Complexity: O(#keys)
+     */
+    public HeapNode[] insertAll(IntStream keys)
+    {
+        return insertAll(keys.toArray(), false);
+    }
+
+    /**
+     * public HeapNode[] insertAll(int[] keys, boolean consolidate)
+     *
+     * Inserts all the given keys and returns their nodes in the same order. If consolidate is true,
+     * the root list is consolidated right away, which links the new nodes into binomial trees
+     * (one tree per set bit of the heap's size when the heap was empty) instead of leaving that work
+     * to the next deleteMin.
+     *
+     * Complexity: O(keys.length + #trees)
+     */
+    public HeapNode[] insertAll(int[] keys, boolean consolidate)
+    {
+        HeapNode[] nodes = new HeapNode[keys.length];
+        if (this.radix != null) {
+            for (int i = 0; i < keys.length; i++) {
+                nodes[i] = insert(keys[i]);
+            }
+            return nodes;
+        }
+        if (keys.length == 0) {
+            return nodes;
+        }
+        HeapNode head = new HeapNode(keys[0]);
+        head.owner = this.owner;
+        HeapNode tail = head;
+        HeapNode newMin = head;
+        nodes[0] = head;
+        for (int i = 1; i < keys.length; i++) {
+            HeapNode node = new HeapNode(keys[i]);
+            node.owner = this.owner;
+            tail.setNext(node);
+            node.setPrev(tail);
+            tail = node;
+            if (keys[i] < newMin.getKey()) {
+                newMin = node;
+            }
+            nodes[i] = node;
+        }
+
+        if (this.isEmpty()) {
+            tail.setNext(head);
+            head.setPrev(tail);
+            this.first = head;
+            this.min = newMin;
+        }
+        else {
+            HeapNode last = this.first.getPrev();
+            last.setNext(head);
+            head.setPrev(last);
+            tail.setNext(this.first);
+            this.first.setPrev(tail);
+            this.first = head;
+            if (newMin.getKey() < this.min.getKey()) {
+                this.min = newMin;
+            }
+        }
+        this.size += keys.length;
+        this.trees += keys.length;
+
+        if (consolidate) {
+            flushUpdates();
+            consolidate();
+        }
+        return nodes;
+    }
+
     /**
      * public void deleteMin()
      *
@@ -85,8 +313,22 @@ public class FibonacciHeap
      * amortized: O(log n)
      */
     public void deleteMin() {
+        if (this.radix != null) {
+            HeapNode min = this.radix.findMin();
+            if (min != null) {
+                this.radix.deleteMin();
+                min.owner = null;
+                unindex(min);
+                this.size--;
+            }
+            return;
+        }
+        flushUpdates();
+        finishCuts();
         if (!this.isEmpty())
         {
+            this.min.owner = null;
+            unindex(this.min);
             if (this.min.getChild() != null)
             {
                 if(trees == 1)
@@ -156,70 +398,100 @@ public class FibonacciHeap
             {
                 this.min.setPrev(null);
                 this.min.setNext(null);
-
-                boolean run=true;
-                HeapNode[] arr = new HeapNode[(int)(Math.ceil(Math.log(this.size) / Math.log(2)))+1];
-                HeapNode node = this.first;
-
-                // make loop on first and on every node until we will be in first again
-                while (node!= this.first || run) {
-                    run=false;
-                    int rank = node.getRank();
-                    HeapNode nextNode = node.getNext();
-
-                    HeapNode mergeNode = node;
-                    fixNode(mergeNode);
-                    while (arr[rank] != null) {
-                        if (mergeNode.getKey() < arr[rank].getKey()) {
-                            connect(mergeNode, arr[rank]);
-                            links++;
-                        } else {
-                            connect(arr[rank], mergeNode);
-                            mergeNode = arr[rank];
-                            links++;
-                        }
-                        arr[rank]=null;
-                        rank++;
-                    }
-                    arr[rank]=mergeNode;
-                    node = nextNode;
-                }
-
-                boolean first = true;
-                int leftIndex = -1;
+                consolidate();
+            }
+            else {
+                this.min = null;
                 this.trees = 0;
-                // connect all merged nodes
-                for (int i = 0; i < arr.length; i++) {
-                    if (arr[i] != null) {
-                        this.trees++;
-                        if(arr[i].isMarked())
-                            this.marked--;
-                        arr[i].setMarked(false);
-                        if (first) {
-                            this.first = arr[i];
-                            first = false;
-                            this.min = arr[i];
-                            leftIndex = i;
-                        }
-                        else {
-                            // updating min
-                            if (this.min.getKey() > arr[i].getKey())
-                                this.min = arr[i];
+            }
+        }
+    }
 
-                            // connect to left node
-                            HeapNode leftNode = arr[leftIndex];
+    /**
+     * public int drainMin(int k, int[] out)
+     *
+     * Deletes the k smallest keys (all keys if the heap holds fewer) and writes them to out in ascending
+     * order. Returns the number of deleted keys.
+     *
+     * The keys are found like kMin(k, out) does: a frontier heap starts with the roots, and every node
+     * taken from it adds its children. The nodes left in the frontier are exactly the roots of the remaining
+     * heap, so the root list is rebuilt from them and consolidated once for the whole batch.
+     * The frontier is kept by the heap, so a batch does not allocate once the frontier has grown.
+     *
+     * Complexity: O(#trees + k*log(n)) amortized
+     */
+    public int drainMin(int k, int[] out)
+    {
+        flushUpdates();
+        finishCuts();
+        int count = Math.min(k, this.size);
+        if (count <= 0) {
+            return 0;
+        }
+        if (out.length < count) {
+            throw new IllegalArgumentException("out holds " + out.length + " keys, " + count + " needed");
+        }
+        if (this.radix != null) {
+            for (int i = 0; i < count; i++) {
+                out[i] = findMin().getKey();
+                deleteMin();
+            }
+            return count;
+        }
+        if (this.frontier == null) {
+            this.frontier = new NodeFrontier();
+        }
+        NodeFrontier frontier = this.frontier;
+        frontier.addRing(this.first);
+        frontier.heapify();
 
-                            leftNode.setNext(arr[i]);
-                            arr[i].setPrev(leftNode);
+        for (int i = 0; i < count; i++) {
+            HeapNode node = frontier.pop();
+            out[i] = node.getKey();
+            if (node.isMarked()) {
+                this.marked--;
+                node.setMarked(false);
+            }
+            HeapNode child = node.getChild();
+            if (child != null) {
+                HeapNode next = child;
+                do {
+                    next.setParent(null);
+                    frontier.push(next);
+                    next = next.getNext();
+                } while (next != child);
+            }
+            node.setChild(null);
+            node.setParent(null);
+            node.setNext(null);
+            node.setPrev(null);
+            node.owner = null;
+            unindex(node);
+        }
+        this.size -= count;
 
-                            this.first.setPrev(arr[i]);
-                            leftIndex = i;
-                        }
-                    }
-                }
-                this.first.getPrev().setNext(this.first);
+        if (this.size == 0) {
+            this.first = null;
+            this.min = null;
+            this.trees = 0;
+        }
+        else {
+            // the rest of the frontier is the new root list
+            this.first = frontier.get(0);
+            HeapNode left = this.first;
+            for (int i = 1; i < frontier.size(); i++) {
+                HeapNode node = frontier.get(i);
+                left.setNext(node);
+                node.setPrev(left);
+                left = node;
             }
+            left.setNext(this.first);
+            this.first.setPrev(left);
+            this.trees = frontier.size();
+            consolidate();
         }
+        frontier.clear();
+        return count;
     }
 
     /**
@@ -227,24 +499,48 @@ public class FibonacciHeap
      *
      * Returns the node of the heap whose key is minimal, or null if the heap is empty.
      *
-     * Complexity: O(1)
+     * Complexity: O(1) (amortized O(log C) in MONOTONE mode)
      */
     public HeapNode findMin()
     {
-        return this.min;
+        return this.radix != null ? this.radix.findMin() : this.min;
     }
 
     /**
      * public void meld (FibonacciHeap heap2)
      *
      * Melds heap2 with the current heap.
-     * Complexity: O(1)
+     * The nodes of heap2 now belong to this heap (their owners are united), and heap2 is left empty:
+     * passing one of its old nodes to heap2.decreaseKey/delete throws IllegalArgumentException.
+     * The ids of heap2 (see insertWithId) move to this heap; if one of them is already in use here,
+     * IllegalArgumentException is thrown and neither heap is changed.
+     * Complexity: O(1) (plus the cuts heap2 had deferred, plus O(#ids of heap2))
      *
      */
     public void meld (FibonacciHeap heap2)
     {
-        // If heap2 is empty, nothing to meld.
-        if(heap2.isEmpty()) {
+        // If heap2 is empty (or this heap), nothing to meld.
+        if(heap2 == this || heap2.isEmpty()) {
+            return;
+        }
+        if((this.radix == null) != (heap2.radix == null)) {
+            throw new IllegalArgumentException("cannot meld a " + heap2.getMode() + " heap into a " + this.getMode() + " heap");
+        }
+        if (heap2.ids != null && heap2.ids.size() > 0) {
+            if (this.ids == null) {
+                this.ids = new IdIndex();
+            }
+            this.ids.putAll(heap2.ids);
+        }
+        flushUpdates();
+        heap2.flushUpdates();
+        heap2.finishCuts();
+        this.owner = Owner.union(this.owner, heap2.owner);
+
+        if(this.radix != null){
+            this.radix.meld(heap2.radix);
+            this.size += heap2.size;
+            heap2.reset();
             return;
         }
 
@@ -255,6 +551,7 @@ public class FibonacciHeap
             this.setMarked(heap2.getMarked());
             this.setFirst(heap2.getFirst());
             this.setMin(heap2.getMin());
+            heap2.reset();
 
             return;
         }
@@ -279,6 +576,56 @@ public class FibonacciHeap
         if(heap2.getMin().getKey() < this.getMin().getKey()) {
             this.setMin(heap2.getMin());
         }
+        heap2.reset();
+    }
+
+    /**
+     * reset()
+     *
+     * Empties the heap after its nodes were melded away, with a new owner so that the old nodes
+     * are no longer accepted.
+     *
+     * Complexity: O(1)
+     */
+    private void reset() {
+        this.size = 0;
+        this.trees = 0;
+        this.marked = 0;
+        this.first = null;
+        this.min = null;
+        this.owner = new Owner();
+        this.ids = null;
+    }
+
+    /**
+     * requireTrees(String operation)
+     *
+     * Throws UnsupportedOperationException for an operation that walks the trees, in MONOTONE mode.
+     *
+     * Complexity: O(1)
+     */
+    private void requireTrees(String operation) {
+        if (this.radix != null) {
+            throw new UnsupportedOperationException(operation + " is not available in MONOTONE mode");
+        }
+    }
+
+    /**
+     * checkOwner(HeapNode x)
+     *
+     * Throws IllegalArgumentException unless x is currently a node of this heap.
+     *
+     * Complexity: O(α(#melds)) amortized
+     */
+    private void checkOwner(HeapNode x) {
+        if (x.owner == null) {
+            throw new IllegalArgumentException("node " + x.getKey() + " is not in a heap");
+        }
+        Owner root = x.owner.find();
+        x.owner = root;
+        if (root != this.owner) {
+            throw new IllegalArgumentException("node " + x.getKey() + " belongs to another heap");
+        }
     }
 
     /**
@@ -304,6 +651,8 @@ public class FibonacciHeap
      */
     public int[] countersRep()
     {
+        requireTrees("countersRep");
+        flushUpdates();
         if(this.isEmpty()) {
             return new int[] {};
         }
@@ -337,16 +686,205 @@ public class FibonacciHeap
      * public void delete(HeapNode x)
      *
      * Deletes the node x from the heap.
-     * It is assumed that x indeed belongs to the heap.
+     * Throws IllegalArgumentException if x is not a node of this heap.
+     * x is cut to the root list and replaced there by its children, with no key arithmetic; the
+     * consolidation is left to the next deleteMin, unless x is the minimum.
      *
-     * Complexity: O(n)
-     * amortized: O(log n)
+     * Complexity: O(log(n))
+     * amortized: O(deg(x))
      */
     public void delete(HeapNode x)
     {
-        int min = this.min.getKey();
-        this.decreaseKey(x,x.getKey() + 1 - min);
-        deleteMin();
+        checkOwner(x);
+        if (this.radix != null) {
+            this.radix.deleteNode(x);
+            x.owner = null;
+            unindex(x);
+            this.size--;
+            return;
+        }
+        flushUpdates();
+        if (x == this.min) {
+            deleteMin();
+            return;
+        }
+        detach(x);
+        this.size--;
+        x.owner = null;
+        unindex(x);
+    }
+
+    /**
+     * detach(HeapNode x)
+     *
+     * Cuts x from its parent (with the usual cascade) and replaces it in the root list by its children,
+     * unmarked. x is left unlinked; the size and the minimum are not updated.
+     *
+     * Complexity: O(deg(x)) plus the cascade
+     */
+    private void detach(HeapNode x) {
+        if (x.getParent() != null) {
+            this.metrics.recordCascade(cut(x, this.cutBudget));
+        }
+
+        // x is now a root: replace it in the root list by its children
+        HeapNode next = x.getNext();
+        HeapNode child = x.getChild();
+        if (child != null) {
+            HeapNode node = child;
+            do {
+                node.setParent(null);
+                if (node.isMarked()) {
+                    node.setMarked(false);
+                    this.marked--;
+                }
+                node = node.getNext();
+            } while (node != child);
+            this.trees += x.getRank();
+        }
+        if (next == x) {
+            // x was the only root
+            this.first = child;
+        }
+        else {
+            HeapNode prev = x.getPrev();
+            if (child != null) {
+                HeapNode last = child.getPrev();
+                prev.setNext(child);
+                child.setPrev(prev);
+                last.setNext(next);
+                next.setPrev(last);
+            }
+            else {
+                prev.setNext(next);
+                next.setPrev(prev);
+            }
+            if (this.first == x) {
+                this.first = child != null ? child : next;
+            }
+        }
+        this.trees--;
+        x.setChild(null);
+        x.setNext(null);
+        x.setPrev(null);
+    }
+
+    /**
+     * public void increaseKey(HeapNode x, int delta)
+     *
+     * Increases the key of the node x by a non-negative value delta. x is detached like delete does
+     * (its children move to the root list) and put back as a root of rank 0 with the new key, so no node
+     * is allocated and nothing is consolidated unless x was the minimum.
+     * In MONOTONE mode the node moves to the bucket of its new key.
+     * Throws IllegalArgumentException if delta is negative and ArithmeticException if the key would
+     * overflow, leaving the heap unchanged.
+     *
+     * Complexity: O(log(n))
+     * amortized: O(deg(x)), O(log n) if x is the minimum
+     */
+    public void increaseKey(HeapNode x, int delta)
+    {
+        checkOwner(x);
+        if (delta < 0) {
+            throw new IllegalArgumentException("delta " + delta + " is negative");
+        }
+        int key = Math.addExact(x.getKey(), delta);
+        if (this.radix != null) {
+            this.radix.deleteNode(x);
+            x.setKey(key);
+            this.radix.insertNode(x);
+            return;
+        }
+        flushUpdates();
+        if (x != this.min && x.getParent() == null && x.getChild() == null) {
+            x.setKey(key);
+            return;
+        }
+        if (this.size == 1) {
+            x.setKey(key);
+            return;
+        }
+        boolean wasMin = x == this.min;
+        detach(x);
+        x.setKey(key);
+        x.rank = 0;
+        HeapNode last = this.first.getPrev();
+        last.setNext(x);
+        x.setPrev(last);
+        x.setNext(this.first);
+        this.first.setPrev(x);
+        this.trees++;
+        if (wasMin) {
+            consolidate();
+        }
+    }
+
+    /**
+     * public int extractRange(int lo, int hi, IntConsumer action)
+     *
+     * Removes every key k with lo <= k <= hi from the heap, passes each to action (in no particular
+     * order), and returns how many were removed. The trees are searched in heap order: a subtree whose
+     * root is above hi is pruned, since all of its keys are too. The removed nodes are detached like
+     * delete does, and the root list is consolidated once, only if the minimum was removed.
+     *
+     * Complexity: O(#visited nodes + #removed * log(n)), #visited being the nodes with keys <= hi
+     * plus the roots of the pruned subtrees
+     */
+    public int extractRange(int lo, int hi, IntConsumer action)
+    {
+        requireTrees("extractRange");
+        flushUpdates();
+        if (this.isEmpty() || lo > hi) {
+            return 0;
+        }
+        // collect the matches first, so that detaching does not disturb the search
+        HeapNode[] stack = new HeapNode[16];
+        HeapNode[] found = new HeapNode[16];
+        int depth = 0;
+        int count = 0;
+        stack[depth++] = this.first;
+        while (depth > 0) {
+            HeapNode start = stack[--depth];
+            HeapNode node = start;
+            do {
+                int key = node.getKey();
+                if (key <= hi) {
+                    if (key >= lo) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, 2 * count);
+                        }
+                        found[count++] = node;
+                    }
+                    if (node.getChild() != null) {
+                        if (depth == stack.length) {
+                            stack = Arrays.copyOf(stack, 2 * depth);
+                        }
+                        stack[depth++] = node.getChild();
+                    }
+                }
+                node = node.getNext();
+            } while (node != start);
+        }
+
+        boolean minRemoved = false;
+        for (int i = 0; i < count; i++) {
+            HeapNode node = found[i];
+            action.accept(node.getKey());
+            minRemoved |= node == this.min;
+            detach(node);
+            node.owner = null;
+            unindex(node);
+        }
+        this.size -= count;
+        if (this.size == 0) {
+            this.first = null;
+            this.min = null;
+            this.trees = 0;
+        }
+        else if (minRemoved) {
+            consolidate();
+        }
+        return count;
     }
 
     /**
@@ -359,6 +897,11 @@ public class FibonacciHeap
      */
     public void decreaseKey(HeapNode x, int delta)
     {
+        checkOwner(x);
+        if (this.radix != null) {
+            this.radix.decreaseNode(x, delta);
+            return;
+        }
         x.setKey(x.getKey() - delta);
         if(this.getMin().getKey() > x.getKey()) { // Update min
             this.setMin(x);
@@ -367,157 +910,666 @@ public class FibonacciHeap
         if(x.getParent() == null) {
             return;
         }
+        if(this.updates != null) { // buffered: the cut waits for flushUpdates
+            if(!x.queued) {
+                x.queued = true;
+                if(this.updateCount == this.updates.length) {
+                    this.updates = Arrays.copyOf(this.updates, Math.max(16, 2 * this.updates.length));
+                }
+                this.updates[this.updateCount++] = x;
+            }
+            return;
+        }
 
         if(x.getKey() < x.getParent().getKey()) { // Cascading cuts
-            cut(x);
+            this.metrics.recordCascade(cut(x, this.cutBudget));
         }
     }
 
     /**
-     * public int potential()
-     *
-     * This function returns the current potential of the heap, which is:
-     * Potential = #trees + 2*#marked
+     * public HeapNode insertWithId(int id, int key)
      *
-     * In words: The potential equals to the number of trees in the heap
-     * plus twice the number of marked nodes in the heap.
+     * Inserts key like insert(key, id), and records the new node in the heap's id index so that it
+     * can be reached through decreaseKeyById, deleteById, containsId and getById. The index is an
+     * open-addressing table of ints, kept up to date by every operation that removes a node.
+     * Throws IllegalArgumentException if a node with this id is already in the heap. The id is the
+     * node's value, so setValue on the node throws IllegalStateException while it is in the heap.
      *
-     * Complexity:O(1)
+     * Returns the newly created node.
+     * Complexity: O(1) expected
      */
-    public int potential()
+    public HeapNode insertWithId(int id, int key)
     {
-        return this.trees + 2 * this.marked;
+        if (this.ids == null) {
+            this.ids = new IdIndex();
+        }
+        else if (this.ids.get(id) != null) {
+            throw new IllegalArgumentException("id " + id + " is already in the heap");
+        }
+        HeapNode node = insert(key, id);
+        this.ids.put(id, node);
+        node.indexed = true;
+        return node;
     }
 
     /**
-     * public static int totalLinks()
+     * public boolean containsId(int id)
      *
-     * This static function returns the total number of link operations made during the
-     * run-time of the program. A link operation is the operation which gets as input two
-     * trees of the same rank, and generates a tree of rank bigger by one, by hanging the
-     * tree which has larger value in its root under the other tree.
+     * Returns true if and only if a node inserted with this id is in the heap.
      *
-     * Complexity:O(1)
+     * Complexity: O(1) expected
      */
-    public static int totalLinks()
+    public boolean containsId(int id)
     {
-        return links;
+        return getById(id) != null;
     }
 
     /**
-     * public static int totalCuts()
+     * public HeapNode getById(int id)
      *
-     * This static function returns the total number of cut operations made during the
-     * run-time of the program. A cut operation is the operation which disconnects a subtree
-     * from its parent (during decreaseKey/delete methods).
+     * Returns the node inserted with this id, or null if there is none in the heap.
      *
-     * Complexity:O(1)
+     * Complexity: O(1) expected
      */
-    public static int totalCuts()
+    public HeapNode getById(int id)
     {
-        return cuts;
+        return this.ids == null ? null : this.ids.get(id);
     }
 
     /**
-     * public static int[] kMin(FibonacciHeap H, int k)
+     * public void decreaseKeyById(int id, int delta)
      *
-     * This static function returns the k smallest elements in a Fibonacci heap that contains a single tree.
-     * The function should run in O(k*deg(H)). (deg(H) is the degree of the only tree in H.)
+     * Decreases the key of the node inserted with this id, like decreaseKey.
+     * Throws IllegalArgumentException if there is no such node.
      *
-     * ###CRITICAL### : you are NOT allowed to change H.
-     *
-     * Complexity:O(k* deg(H))
+     * Complexity: O(1) expected + decreaseKey
      */
-    public static int[] kMin(FibonacciHeap H, int k)
+    public void decreaseKeyById(int id, int delta)
     {
-        int[] arr = new int[k];
-        HeapNode minH=H.findMin();
-
-        int count=0;
-        FibonacciHeap heap=new FibonacciHeap();
-
-        HeapNode insertedNode=heap.insert(minH.getKey());
-        insertedNode.setPtrNode(minH);
-
-        // add the k smallest elements-after the minimum is already added
-        while(count<k){
-            // the minimum in the new heap
-            minH=heap.findMin();
-            // add the minimum element to the array
-            arr[count]=minH.getKey();
-            // remove from the temporary heap
-            heap.deleteMin();
-            count++;
-
-            if(count==k){
-                break;
-            }
-
-            if(minH.getPtrNode().getChild()!=null) {
-                // add the children of the minimum to the temporary heap
-                boolean run = true;
-                HeapNode ptr = minH.getPtrNode().getChild();
-                while (ptr != minH.getPtrNode().getChild() || run == true) {
-                    run = false;
-                    insertedNode = heap.insert(ptr.getKey());
-                    insertedNode.setPtrNode(ptr);
-                    ptr = ptr.getNext();
-                }
-            }
+        HeapNode node = getById(id);
+        if (node == null) {
+            throw new IllegalArgumentException("no node with id " + id);
         }
-        return arr;
+        decreaseKey(node, delta);
     }
 
     /**
-     * public void cut(HeapNode x)
+     * public boolean deleteById(int id)
      *
-     * Cuts node x from its parent node and adds it as a new tree.
-     * Continues to make cascading cuts as long as the parent tree is marked.
+     * Deletes the node inserted with this id, like delete. Returns false if there is no such node.
      *
-     * Complexity: O(1) for each stack call (not including other recursive calls).
+     * Complexity: O(1) expected + delete
      */
-    private void cut(HeapNode x) {
-        if(x.getParent() == null) {
-            return;
+    public boolean deleteById(int id)
+    {
+        HeapNode node = getById(id);
+        if (node == null) {
+            return false;
         }
-        x.getParent().setRank(x.getParent().getRank() - 1);
+        delete(node);
+        return true;
+    }
 
-        if(x.getNext() == x) {                // If x is a lone child
-            x.getParent().setChild(null);
-        }
-        else {                                // Else, x has siblings
-            x.getPrev().setNext(x.getNext());
-            x.getNext().setPrev(x.getPrev());
-        }
-        if (x == x.getParent().getChild()) {   // If x is parent's child
-            x.getParent().setChild(x.getNext());
+    /**
+     * unindex(HeapNode node)
+     *
+     * Drops a removed node from the id index, if it was inserted with an id.
+     *
+     * Complexity: O(1) expected
+     */
+    private void unindex(HeapNode node) {
+        if (node.indexed) {
+            this.ids.remove(node.getValue(), node);
+            node.indexed = false;
         }
-        // Add to trees
-        HeapNode first = this.first;
-        this.setFirst(x);
-        x.setNext(first);
-        x.setPrev(first.getPrev());
-        first.getPrev().setNext(x);
-        first.setPrev(x);
-        this.setTrees(this.getTrees() + 1);
+    }
+
+    /**
+     * public int potential()
+     *
+     * This function returns the current potential of the heap, which is:
+     * Potential = #trees + 2*#marked
+     *
+     * In words: The potential equals to the number of trees in the heap
+     * plus twice the number of marked nodes in the heap.
+     *
+     * Complexity:O(1)
+     */
+    public int potential()
+    {
+        return this.trees + 2 * this.marked;
+    }
+
+    /**
+     * public HeapMetrics getMetrics()
+     *
+     * Returns the operation counters of this heap. The same object is returned on every call and
+     * reflects later operations.
+     *
+     * Complexity:O(1)
+     */
+    public HeapMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    /**
+     * public static int totalLinks()
+     *
+     * This static function returns the total number of link operations made by all heaps during the
+     * run-time of the program. A link operation is the operation which gets as input two
+     * trees of the same rank, and generates a tree of rank bigger by one, by hanging the
+     * tree which has larger value in its root under the other tree.
+     *
+     * Complexity:O(1)
+     */
+    public static int totalLinks()
+    {
+        return (int) allLinks.sum();
+    }
+
+    /**
+     * public static int totalCuts()
+     *
+     * This static function returns the total number of cut operations made by all heaps during the
+     * run-time of the program. A cut operation is the operation which disconnects a subtree
+     * from its parent (during decreaseKey/delete methods).
+     *
+     * Complexity:O(1)
+     */
+    public static int totalCuts()
+    {
+        return (int) allCuts.sum();
+    }
+
+    /**
+     * public static int[] kMin(FibonacciHeap H, int k)
+     *
+     * This static function returns the k smallest elements in a Fibonacci heap (all of them if H holds
+     * fewer than k), in ascending order. H may have any number of trees.
+     *
+     * ###CRITICAL### : you are NOT allowed to change H.
+     *
+     * Complexity: O(#trees + k*(deg(H) + log(#trees + k*deg(H))))
+     */
+    public static int[] kMin(FibonacciHeap H, int k)
+    {
+        int[] arr = new int[Math.max(0, Math.min(k, H.size()))];
+        H.kMin(k, arr);
+        return arr;
+    }
+
+    /**
+     * public int kMin(int k, int[] out)
+     *
+     * Writes the k smallest keys of the heap (all keys if the heap holds fewer) to out in ascending
+     * order, without changing the heap. Returns the number of written keys.
+     *
+     * A frontier heap starts with the roots, and every node taken from it adds its children.
+     * Nodes waiting in the decreaseKey buffer may be smaller than their parents, so they start in the
+     * frontier as well and are skipped as children; the buffer is left as it is.
+     * Each call allocates its own frontier, so queries may run concurrently (while nothing changes the
+     * heap) or from inside a kMin action; kMin(k, out, frontier) reuses the caller's instead.
+     *
+     * Complexity: O(#trees + k*(deg(H) + log(#trees + k*deg(H))))
+     */
+    public int kMin(int k, int[] out)
+    {
+        return kMin(k, out, new NodeFrontier());
+    }
+
+    /**
+     * public int kMin(int k, int[] out, NodeFrontier frontier)
+     *
+     * kMin(k, out) over the given frontier, which is left empty and keeps its array: a query does not
+     * allocate once the frontier has grown. A frontier serves one query at a time, so a thread that
+     * repeats queries keeps one of its own.
+     *
+     * Complexity: O(#trees + k*(deg(H) + log(#trees + k*deg(H))))
+     */
+    public int kMin(int k, int[] out, NodeFrontier frontier)
+    {
+        int count = Math.min(k, this.size);
+        if (count > out.length) {
+            throw new IllegalArgumentException("out holds " + out.length + " keys, " + count + " needed");
+        }
+        return kMin(count, out, null, frontier);
+    }
+
+    /**
+     * public int kMin(int k, IntConsumer action)
+     *
+     * Like kMin(k, out), but passes the keys to action in ascending order instead of storing them.
+     * action must not change the heap.
+     *
+     * Complexity: O(#trees + k*(deg(H) + log(#trees + k*deg(H))))
+     */
+    public int kMin(int k, IntConsumer action)
+    {
+        return kMin(Math.min(k, this.size), null, action, new NodeFrontier());
+    }
+
+    private int kMin(int count, int[] out, IntConsumer action, NodeFrontier frontier)
+    {
+        requireTrees("kMin");
+        if (count <= 0) {
+            return 0;
+        }
+        try {
+            frontier.addRing(this.first);
+            frontier.addQueued(this.updates, this.updateCount);
+            frontier.heapify();
+            for (int i = 0; i < count; i++) {
+                HeapNode node = frontier.pop();
+                if (out != null) {
+                    out[i] = node.getKey();
+                }
+                else {
+                    action.accept(node.getKey());
+                }
+                if (i + 1 < count) {
+                    frontier.pushChildren(node);
+                }
+            }
+        }
+        finally {
+            frontier.clear();
+        }
+        return count;
+    }
+
+    /**
+     * public PrimitiveIterator.OfInt sortedIterator()
+     *
+     * Returns an iterator over the keys of the heap in ascending order, without changing the heap.
+     * The iterator keeps its own frontier of the roots (and of the nodes in the decreaseKey buffer, as
+     * in kMin) and expands the children of a node only when the node is returned, so reading the first N keys costs O(#trees + N*(deg(H) + log(#trees + N*deg(H)))).
+     * The heap must not be changed while the iterator is in use.
+     *
+     * Complexity: O(#trees)
+     */
+    public PrimitiveIterator.OfInt sortedIterator()
+    {
+        requireTrees("sortedIterator");
+        return new SortedIterator(this.first, this.updates, this.updateCount);
+    }
+
+    /**
+     * public IntStream stream()
+     *
+     * Returns a sequential stream of the keys of the heap in ascending order, backed by sortedIterator().
+     * The heap must not be changed while the stream is in use.
+     *
+     * Complexity: O(1), the keys are produced lazily
+     */
+    public IntStream stream()
+    {
+        requireTrees("stream");
+        return StreamSupport.intStream(() -> Spliterators.spliterator(sortedIterator(), this.size,
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL),
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.SIZED, false);
+    }
+
+    /**
+     * public HeapNode[] save(Path file)
+     *
+     * Writes the exact structure of the heap to file (replacing it): a header with size, trees, marked
+     * and the position of the minimum among the roots, then one record per node (key, value, rank, and
+     * flags for a marked node and a node in the id index) with every tree in preorder, children in list
+     * order. Cuts deferred by the cut budget are finished
+     * first. Returns the nodes in record order; the position of a node is its id in the snapshot, which
+     * load returns in the same order, so an external index can reattach to the loaded nodes.
+     *
+     * Complexity: O(n)
+     */
+    public HeapNode[] save(Path file) throws IOException
+    {
+        requireTrees("save");
+        flushUpdates();
+        finishCuts();
+        HeapNode[] nodes = preorder();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            int minRoot = 0;
+            if (!this.isEmpty()) {
+                for (HeapNode root = this.first; root != this.min; root = root.getNext()) {
+                    minRoot++;
+                }
+            }
+            buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(this.size).putInt(this.trees)
+                    .putInt(this.marked).putInt(minRoot);
+            for (HeapNode node : nodes) {
+                if (buffer.remaining() < SNAPSHOT_RECORD) {
+                    write(channel, buffer);
+                }
+                int flags = (node.isMarked() ? SNAPSHOT_MARKED : 0) | (node.indexed ? SNAPSHOT_INDEXED : 0);
+                buffer.putInt(node.getKey()).putInt(node.getValue()).put((byte) node.getRank())
+                        .put((byte) flags);
+            }
+            write(channel, buffer);
+            channel.force(false);
+        }
+        return nodes;
+    }
+
+    /**
+     * preorder()
+     *
+     * Returns every node of the heap, tree by tree in preorder with children in list order, using an
+     * explicit stack of child lists (the current node of each list and its start).
+     *
+     * Complexity: O(n)
+     */
+    private HeapNode[] preorder() {
+        HeapNode[] nodes = new HeapNode[this.size];
+        if (this.isEmpty()) {
+            return nodes;
+        }
+        HeapNode[] starts = new HeapNode[16];
+        HeapNode[] currents = new HeapNode[16];
+        starts[0] = this.first;
+        currents[0] = this.first;
+        int depth = 1;
+        int count = 0;
+        while (depth > 0) {
+            HeapNode node = currents[depth - 1];
+            if (node.getNext() == starts[depth - 1]) {
+                depth--;
+            }
+            else {
+                currents[depth - 1] = node.getNext();
+            }
+            if (node.getChild() != null) {
+                if (depth == starts.length) {
+                    starts = Arrays.copyOf(starts, 2 * depth);
+                    currents = Arrays.copyOf(currents, 2 * depth);
+                }
+                starts[depth] = node.getChild();
+                currents[depth] = node.getChild();
+                depth++;
+            }
+            nodes[count++] = node;
+        }
+        return nodes;
+    }
+
+    /**
+     * public HeapNode[] load(Path file)
+     *
+     * Rebuilds the structure written by save into this heap, which must be empty, without linking or
+     * consolidating. The records are read from a read-only mapping of the file. Nodes saved with an id
+     * (see insertWithId) are put back into the id index. Returns the new nodes in record order, so the
+     * node with id i of the snapshot is the i-th entry.
+     *
+     * Complexity: O(n)
+     */
+    public HeapNode[] load(Path file) throws IOException
+    {
+        requireTrees("load");
+        if (!this.isEmpty()) {
+            throw new IllegalStateException("load needs an empty heap, this one holds " + this.size + " keys");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(length, SNAPSHOT_HEADER))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (length < SNAPSHOT_HEADER || header.getInt(0) != SNAPSHOT_MAGIC || header.getInt(4) != SNAPSHOT_VERSION) {
+                throw new IOException("not a heap snapshot: " + file);
+            }
+            int size = header.getInt(8);
+            int trees = header.getInt(12);
+            int marked = header.getInt(16);
+            int minRoot = header.getInt(20);
+            if (length != SNAPSHOT_HEADER + (long) size * SNAPSHOT_RECORD) {
+                throw new IOException("truncated heap snapshot: " + file);
+            }
+
+            HeapNode[] nodes = new HeapNode[size];
+            HeapNode[] parents = new HeapNode[16];
+            int[] remaining = new int[16];
+            int depth = 0;
+            ByteBuffer records = null;
+            long position = SNAPSHOT_HEADER;
+            HeapNode last = null;
+            for (int i = 0; i < size; i++) {
+                if (records == null || !records.hasRemaining()) {
+                    records = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(SNAPSHOT_WINDOW, length - position)).order(ByteOrder.LITTLE_ENDIAN);
+                    position += records.capacity();
+                }
+                HeapNode node = new HeapNode(records.getInt());
+                node.setValue(records.getInt());
+                node.setRank(records.get());
+                int flags = records.get();
+                node.setMarked((flags & SNAPSHOT_MARKED) != 0);
+                node.owner = this.owner;
+                nodes[i] = node;
+                if ((flags & SNAPSHOT_INDEXED) != 0) {
+                    if (this.ids == null) {
+                        this.ids = new IdIndex();
+                    }
+                    else if (this.ids.get(node.getValue()) != null) {
+                        throw new IOException("id " + node.getValue() + " appears twice in heap snapshot: " + file);
+                    }
+                    this.ids.put(node.getValue(), node);
+                    node.indexed = true;
+                }
+
+                while (depth > 0 && remaining[depth - 1] == 0) {
+                    depth--;
+                }
+                HeapNode parent = depth > 0 ? parents[depth - 1] : null;
+                if (parent == null) {
+                    if (last == null) {
+                        this.first = node;
+                    }
+                    else {
+                        last.setNext(node);
+                        node.setPrev(last);
+                    }
+                    last = node;
+                }
+                else {
+                    remaining[depth - 1]--;
+                    node.setParent(parent);
+                    HeapNode child = parent.getChild();
+                    if (child == null) {
+                        parent.setChild(node);
+                    }
+                    else {
+                        node.setPrev(child.getPrev());
+                        node.setNext(child);
+                        child.getPrev().setNext(node);
+                        child.setPrev(node);
+                    }
+                }
+                if (node.getRank() > 0) {
+                    if (depth == parents.length) {
+                        parents = Arrays.copyOf(parents, 2 * depth);
+                        remaining = Arrays.copyOf(remaining, 2 * depth);
+                    }
+                    parents[depth] = node;
+                    remaining[depth] = node.getRank();
+                    depth++;
+                }
+            }
+            if (last != null) {
+                last.setNext(this.first);
+                this.first.setPrev(last);
+                this.min = this.first;
+                for (int i = 0; i < minRoot; i++) {
+                    this.min = this.min.getNext();
+                }
+            }
+            this.size = size;
+            this.trees = trees;
+            this.marked = marked;
+            return nodes;
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * cut(HeapNode x, int budget)
+     *
+     * Cuts node x from its parent node and adds it as a new tree.
+     * Continues to make cascading cuts as long as the parent tree is marked, iteratively, for at most
+     * budget cuts. A marked parent left over by the budget is pushed to the pending cuts, which
+     * finishCuts completes before the next deleteMin.
+     * Returns the number of cut nodes.
+     *
+     * Complexity: O(1) for each cut node
+     */
+    private int cut(HeapNode x, int budget) {
+        int cuts = 0;
+        while (x.getParent() != null) {
+            HeapNode parent = x.getParent();
+            parent.setRank(parent.getRank() - 1);
+
+            if (x.getNext() == x) {                // If x is a lone child
+                parent.setChild(null);
+            }
+            else {                                 // Else, x has siblings
+                x.getPrev().setNext(x.getNext());
+                x.getNext().setPrev(x.getPrev());
+                if (x == parent.getChild()) {      // If x is parent's child
+                    parent.setChild(x.getNext());
+                }
+            }
+            // Add to trees
+            HeapNode first = this.first;
+            this.setFirst(x);
+            x.setNext(first);
+            x.setPrev(first.getPrev());
+            first.getPrev().setNext(x);
+            first.setPrev(x);
+            this.setTrees(this.getTrees() + 1);
+            x.setParent(null);
+            if (x.isMarked()) {
+                x.setMarked(false);
+                this.setMarked(this.getMarked() - 1);
+            }
+            cuts++;
+
+            // Mark parent node or continue with it if also marked
+            if (!parent.isMarked()) {
+                if (parent.getParent() != null) { // If parent is not a root
+                    parent.setMarked(true);
+                    this.setMarked(this.getMarked() + 1);
+                }
+                break;
+            }
+            if (cuts == budget) {
+                pushPendingCut(parent);
+                break;
+            }
+            x = parent;
+        }
+        return cuts;
+    }
+
+    /**
+     * public void setCutBudget(int maxCuts)
+     *
+     * Limits the cascading cuts made inside one decreaseKey/delete to maxCuts. The rest of a cascade is
+     * finished by the next consolidation (deleteMin, drainMin, increaseKey or extractRange of the minimum,
+     * insertAll with consolidation) or a meld of this heap into another, which bounds the worst case of
+     * decreaseKey without changing the amortized costs. Integer.MAX_VALUE (the default) makes every
+     * cascade complete immediately.
+     *
+     * Complexity: O(1)
+     */
+    public void setCutBudget(int maxCuts)
+    {
+        if (maxCuts < 1) {
+            throw new IllegalArgumentException("maxCuts must be positive: " + maxCuts);
+        }
+        this.cutBudget = maxCuts;
+    }
 
-        // Mark parent node or cut it if also marked
-        if(x.getParent().isMarked()) {
-            cut(x.getParent());
+    /**
+     * public void setDecreaseKeyBuffering(boolean enabled)
+     *
+     * While enabled, decreaseKey only changes the key and the minimum, and queues the node (once, however
+     * many times it is decreased) instead of cutting it from its parent. The queued nodes are cut in one
+     * pass by the next operation that needs heap order: deleteMin, drainMin, delete, increaseKey, meld, extractRange,
+     * insertAll with consolidation, countersRep or save. kMin and sortedIterator read around the queued
+     * nodes without cutting them. A node decreased several times between two of these is then
+     * checked against its parent once, with its latest key, and nodes whose parent was decreased as well
+     * are often not cut at all. findMin stays O(1), since the minimum is kept up to date.
+     * Disabling the buffer applies the queued updates. Not available in MONOTONE mode.
+     *
+     * Complexity: O(#queued updates) when disabling, O(1) otherwise
+     */
+    public void setDecreaseKeyBuffering(boolean enabled)
+    {
+        requireTrees("setDecreaseKeyBuffering");
+        if (enabled) {
+            if (this.updates == null) {
+                this.updates = new HeapNode[0];
+            }
         }
-        else if(x.getParent().getParent() != null) { // If parent is not a root
-            x.getParent().setMarked(true);
-            this.setMarked(this.getMarked() + 1);
+        else if (this.updates != null) {
+            flushUpdates();
+            this.updates = null;
         }
+    }
 
-        x.setParent(null);
+    /**
+     * flushUpdates()
+     *
+     * Cuts every queued node whose key is now smaller than its parent's, with the usual cascade.
+     * The cuts never add a parent-child edge, so checking each queued node once against the final
+     * keys restores heap order. A queued node may have been cut meanwhile by a cascade, and is skipped.
+     * The minimum is cut even when its key only ties its parent's, since decreaseKey made it the
+     * minimum and the minimum must be a root.
+     *
+     * Complexity: O(#queued updates) amortized
+     */
+    private void flushUpdates() {
+        for (int i = 0; i < this.updateCount; i++) {
+            HeapNode node = this.updates[i];
+            this.updates[i] = null;
+            node.queued = false;
+            HeapNode parent = node.getParent();
+            if (parent != null && (node.getKey() < parent.getKey() || node == this.min)) {
+                this.metrics.recordCascade(cut(node, this.cutBudget));
+            }
+        }
+        this.updateCount = 0;
+    }
 
-        if(x.isMarked()) {
-            x.setMarked(false);
-            this.setMarked(this.getMarked() - 1);
+    /**
+     * pushPendingCut(HeapNode node), finishCuts()
+     *
+     * Record a marked node whose cut was deferred / cut every recorded node that is still marked and
+     * not a root, with unbounded cascades. The pending stack is kept by the heap and reused.
+     *
+     * Complexity: O(1) amortized / O(#pending + #cuts)
+     */
+    private void pushPendingCut(HeapNode node) {
+        if (this.pendingCount == this.pendingCuts.length) {
+            this.pendingCuts = Arrays.copyOf(this.pendingCuts, Math.max(8, 2 * this.pendingCount));
         }
+        this.pendingCuts[this.pendingCount++] = node;
+    }
 
-        FibonacciHeap.cuts++;
+    private void finishCuts() {
+        while (this.pendingCount > 0) {
+            HeapNode node = this.pendingCuts[--this.pendingCount];
+            this.pendingCuts[this.pendingCount] = null;
+            if (node.isMarked() && node.getParent() != null) {
+                this.metrics.recordCascade(cut(node, Integer.MAX_VALUE));
+            }
+        }
     }
 
     /**
@@ -558,7 +1610,7 @@ public class FibonacciHeap
     }
 
     public HeapNode getMin() {
-        return this.min;
+        return findMin();
     }
 
     private void setMin(HeapNode node) {
@@ -566,49 +1618,211 @@ public class FibonacciHeap
     }
 
     /**
-     * connect(HeapNode parent,HeapNode child)
+     * consolidate()
      *
-     * linking two trees- one is designated to be the parent of the other.
-     * Complexity: O(1)
+     * Links the trees of the root list until no two roots share a rank, then rebuilds the root list
+     * and the minimum from the rank table. The rank table is kept by the heap and reused, so a
+     * consolidation does not allocate unless the heap grew past the table's rank bound.
+     * Root lists of at least parallelTrees trees are linked by linkParallel instead.
+     * The cascades deferred by the cut budget are finished first, so their cuts are linked too and no
+     * marked node waits for its cut across a consolidation, whichever operation consolidates.
+     *
+     * Complexity: O(#trees + log n)
      */
-    private void connect(HeapNode parent,HeapNode child){
-        HeapNode savedChild=parent.getChild();
+    private void consolidate() {
+        finishCuts();
+        HeapNode[] arr = rankTable(this.size);
+        HeapNode node = this.first;
+        boolean run = true;
+        int linked = 0;
 
-        parent.setChild(child);
-        child.setParent(parent);
+        if (this.trees >= this.parallelTrees) {
+            linked = linkParallel(arr);
+        }
+        else {
+            // make loop on first and on every node until we will be in first again
+            while (node != this.first || run) {
+                run = false;
+                int rank = node.getRank();
+                HeapNode nextNode = node.getNext();
 
-        parent.setNext(parent);
-        parent.setPrev(parent);
+                HeapNode mergeNode = node;
+                fixNode(mergeNode);
+                while (arr[rank] != null) {
+                    if (mergeNode.getKey() < arr[rank].getKey()) {
+                        connect(mergeNode, arr[rank]);
+                    } else {
+                        connect(arr[rank], mergeNode);
+                        mergeNode = arr[rank];
+                    }
+                    linked++;
+                    arr[rank] = null;
+                    rank++;
+                }
+                arr[rank] = mergeNode;
+                node = nextNode;
+            }
+        }
 
-        // connect children
-        if(savedChild!=null){
-            child.setPrev(savedChild.getPrev());
-            savedChild.getPrev().setNext(child);
+        HeapNode leftNode = null;
+        int maxRank = 0;
+        this.trees = 0;
+        // connect all merged nodes, clearing the table for the next call
+        for (int i = 0; i < arr.length; i++) {
+            HeapNode root = arr[i];
+            if (root == null) {
+                continue;
+            }
+            arr[i] = null;
+            maxRank = i;
+            this.trees++;
+            if (root.isMarked())
+                this.marked--;
+            root.setMarked(false);
+            if (leftNode == null) {
+                this.first = root;
+                this.min = root;
+            }
+            else {
+                // updating min
+                if (this.min.getKey() > root.getKey())
+                    this.min = root;
 
-            savedChild.setPrev(child);
-            child.setNext(savedChild);
-        }
-        else{
-            child.setNext(child);
-            child.setPrev(child);
+                // connect to left node
+                leftNode.setNext(root);
+                root.setPrev(leftNode);
+            }
+            leftNode = root;
         }
-
-        parent.setRank(parent.getRank()+1);
+        this.first.setPrev(leftNode);
+        leftNode.setNext(this.first);
+        this.metrics.recordConsolidation(linked, maxRank);
     }
 
     /**
-     * fixNode(HeapNode node)
+     * public void setParallelConsolidation(ForkJoinPool pool, int minTrees)
      *
-     * separate the node from its heap
+     * Makes deleteMin link the root list on pool whenever it holds at least minTrees trees, such as
+     * the first deleteMin after a large bulk load. A null pool means the common pool; minTrees of
+     * Integer.MAX_VALUE (the default) turns the parallel mode off.
      *
      * Complexity: O(1)
      */
-    private void fixNode(HeapNode node) {
-        node.setNext(node);
+    public void setParallelConsolidation(ForkJoinPool pool, int minTrees)
+    {
+        if (minTrees < 1) {
+            throw new IllegalArgumentException("minTrees must be positive: " + minTrees);
+        }
+        this.pool = pool;
+        this.parallelTrees = minTrees;
+    }
+
+    /**
+     * linkParallel(HeapNode[] arr)
+     *
+     * Links the whole root list into arr, like the loop of consolidate, on the fork-join pool: the roots
+     * are split into ranges, each range is linked into a rank table of its own, and the tables are
+     * merged pairwise (log P rounds) by adding them like binary numbers.
+     * Returns the number of links.
+     *
+     * Complexity: O(#trees + P*log n) work, O(#trees / P + log P * log n) span
+     */
+    private int linkParallel(HeapNode[] arr) {
+        // trees is not updated yet for the children of a deleted min, so the ring is walked to its end
+        HeapNode[] roots = new HeapNode[this.trees + 1];
+        int count = 0;
+        HeapNode node = this.first;
+        do {
+            if (count == roots.length) {
+                roots = Arrays.copyOf(roots, 2 * count);
+            }
+            roots[count++] = node;
+            node = node.getNext();
+        } while (node != this.first);
+        for (int i = 0; i < count; i++) {
+            fixNode(roots[i]);
+        }
+        ForkJoinPool pool = this.pool != null ? this.pool : ForkJoinPool.commonPool();
+        int grain = Math.max(LinkTask.MIN_GRAIN, count / (4 * pool.getParallelism()));
+        LinkTask task = new LinkTask(roots, 0, count, arr.length, grain);
+        HeapNode[] table = pool.invoke(task);
+        System.arraycopy(table, 0, arr, 0, arr.length);
+        return task.linked;
+    }
+
+    /**
+     * rankTable(int n)
+     *
+     * Returns the heap's rank table, all entries null, large enough for any rank in a heap of n nodes.
+     * The table only grows, when n crosses the next bound.
+     *
+     * Complexity: O(1) amortized
+     */
+    private HeapNode[] rankTable(int n) {
+        int length = rankBound(n) + 1;
+        if (this.rankTable.length < length) {
+            this.rankTable = new HeapNode[length];
+        }
+        return this.rankTable;
+    }
+
+    /**
+     * connect(HeapNode parent,HeapNode child)
+     *
+     * linking two trees- one is designated to be the parent of the other.
+     * Complexity: O(1)
+     */
+    private void connect(HeapNode parent,HeapNode child){
+        HeapNode savedChild=parent.getChild();
+
+        parent.setChild(child);
+        child.setParent(parent);
+
+        parent.setNext(parent);
+        parent.setPrev(parent);
+
+        // connect children
+        if(savedChild!=null){
+            child.setPrev(savedChild.getPrev());
+            savedChild.getPrev().setNext(child);
+
+            savedChild.setPrev(child);
+            child.setNext(savedChild);
+        }
+        else{
+            child.setNext(child);
+            child.setPrev(child);
+        }
+
+        parent.setRank(parent.getRank()+1);
+    }
+
+    /**
+     * fixNode(HeapNode node)
+     *
+     * separate the node from its heap
+     *
+     * Complexity: O(1)
+     */
+    private void fixNode(HeapNode node) {
+        node.setNext(node);
         node.setPrev(node);
         node.setParent(null);
     }
 
+    /**
+     * rankBound(int n)
+     *
+     * Returns an upper bound on the rank of any tree in a heap of n nodes. A tree of rank k holds at least
+     * F(k+2) >= phi^k nodes, so its rank is at most log_phi(n) < 1.5*log2(n), computed here without floating point.
+     *
+     * Complexity: O(1)
+     */
+    private static int rankBound(int n) {
+        int bits = 32 - Integer.numberOfLeadingZeros(n);
+        return bits + (bits >> 1) + 1;
+    }
+
    /**
     * public class HeapNode
     * 
@@ -616,7 +1830,7 @@ public class FibonacciHeap
     * (for example HeapNode), do it in this file, not in another file. 
     *  
     */
-    public static class HeapNode{
+    public static class HeapNode implements AddressablePriorityQueue.Handle {
 
     	private int key;
         private boolean marked;
@@ -625,7 +1839,10 @@ public class FibonacciHeap
         private HeapNode next;
         private HeapNode prev;
         private HeapNode parent;
-        private HeapNode ptrNode;
+        private int value;
+        private Owner owner;
+        private boolean queued;     // in the decreaseKey buffer of its heap
+        private boolean indexed;    // in the id index of its heap, under its value
 
        /**
         * public HeapNode(int key)
@@ -643,7 +1860,7 @@ public class FibonacciHeap
            this.next = this;
            this.prev = this;
            this.parent = null;
-           this.ptrNode=null;
+           this.value=0;
        }
 
        /**
@@ -768,21 +1985,4928 @@ public class FibonacciHeap
        }
 
        /**
-        * public void setPtrNode(HeapNode node)
-        * Sets the node's ptrNode
+        * public void setValue(int value)
+        * Sets the node's payload. Throws IllegalStateException if the node was inserted with an id
+        * (see insertWithId) and is still in its heap, since the payload is that id.
         * Complexity --O(1)
         */
-       public void setPtrNode(HeapNode node) {
-           this.ptrNode = node;
+       public void setValue(int value) {
+           if (this.indexed) {
+               throw new IllegalStateException("the value of node " + this.key + " is its id " + this.value);
+           }
+           this.value = value;
        }
 
        /**
-        * public HeapNode getPtrNode()
-        * Returns the node's ptrNode
+        * public int getValue()
+        * Returns the node's payload (0 unless set)
         * Complexity --O(1)
         */
-       public HeapNode getPtrNode() {
-           return this.ptrNode;
+       public int getValue() {
+           return this.value;
        }
     }
+
+   /**
+    * public enum Mode
+    *
+    * The layout of a FibonacciHeap, chosen at construction: GENERAL is the Fibonacci Heap,
+    * MONOTONE the radix heap for keys that never go below the last minimum (such as Dijkstra
+    * distances or event times).
+    */
+    public enum Mode {
+        GENERAL,
+        MONOTONE
+    }
+
+   /**
+    * private static class Owner
+    *
+    * The union-find set of a heap's nodes. Every node points to the owner of the heap it was inserted
+    * into; meld unites the owners of both heaps, so a node belongs to a heap exactly when its owner's
+    * root is that heap's owner. Removed nodes have no owner.
+    */
+    private static class Owner {
+
+        private Owner parent;
+        private int rank;
+
+        /**
+         * find()
+         *
+         * Returns the root of this owner's set, halving the path on the way.
+         * Complexity: O(α(n)) amortized
+         */
+        Owner find() {
+            Owner o = this;
+            while (o.parent != null) {
+                if (o.parent.parent != null) {
+                    o.parent = o.parent.parent;
+                }
+                o = o.parent;
+            }
+            return o;
+        }
+
+        /**
+         * union(Owner a, Owner b)
+         *
+         * Unites the sets of the roots a and b by rank and returns the new root.
+         * Complexity: O(1)
+         */
+        static Owner union(Owner a, Owner b) {
+            if (a.rank < b.rank) {
+                a.parent = b;
+                return b;
+            }
+            b.parent = a;
+            if (a.rank == b.rank) {
+                a.rank++;
+            }
+            return a;
+        }
+
+        /**
+         * check(Owner owner, Owner heap)
+         *
+         * Returns the root of owner, the owner of a node, if it is heap, the owner of the queue the node
+         * was given to. Throws IllegalArgumentException if the node was removed or is in another queue.
+         * Complexity: O(α(n)) amortized
+         */
+        static Owner check(Owner owner, Owner heap) {
+            if (owner == null) {
+                throw new IllegalArgumentException("the node is not in a queue");
+            }
+            Owner root = owner.find();
+            if (root != heap) {
+                throw new IllegalArgumentException("the node belongs to another queue");
+            }
+            return root;
+        }
+    }
+
+   /**
+    * public static class NodeFrontier
+    *
+    * A binary min-heap of HeapNodes (by key) over a reusable array, used as the frontier of
+    * kMin-style traversals. clear() drops the references but keeps the array. Callers hold one only
+    * as the scratch space of kMin(k, out, frontier); its operations stay inside this file.
+    */
+    public static class NodeFrontier {
+
+        private HeapNode[] nodes = new HeapNode[16];
+        private int size;
+
+        int size() {
+            return this.size;
+        }
+
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        HeapNode get(int i) {
+            return this.nodes[i];
+        }
+
+        /**
+         * push(HeapNode node), pop()
+         *
+         * Add a node / remove and return the node with the smallest key.
+         * Complexity: O(log size)
+         */
+        void push(HeapNode node) {
+            grow(this.size + 1);
+            int i = this.size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (this.nodes[parent].getKey() <= node.getKey()) {
+                    break;
+                }
+                this.nodes[i] = this.nodes[parent];
+                i = parent;
+            }
+            this.nodes[i] = node;
+        }
+
+        HeapNode pop() {
+            HeapNode top = this.nodes[0];
+            HeapNode last = this.nodes[--this.size];
+            this.nodes[this.size] = null;
+            if (this.size > 0) {
+                siftDown(0, last);
+            }
+            return top;
+        }
+
+        /**
+         * addRing(HeapNode first), heapify()
+         *
+         * Append every node of the circular list starting at first without ordering them /
+         * restore the heap order of the whole array.
+         * Complexity: O(#appended) / O(size)
+         */
+        void addRing(HeapNode first) {
+            HeapNode node = first;
+            do {
+                grow(this.size + 1);
+                this.nodes[this.size++] = node;
+                node = node.getNext();
+            } while (node != first);
+        }
+
+        /**
+         * addQueued(HeapNode[] queued, int count), pushChildren(HeapNode node)
+         *
+         * Append the nodes of the decreaseKey buffer that are not roots, without ordering them /
+         * add the children of node that are not in the buffer. Together they read the heap as if the
+         * buffered nodes had been cut, so the frontier stays in heap order.
+         * Complexity: O(count) / O(deg(node) * log size)
+         */
+        void addQueued(HeapNode[] queued, int count) {
+            for (int i = 0; i < count; i++) {
+                if (queued[i].getParent() != null) {
+                    grow(this.size + 1);
+                    this.nodes[this.size++] = queued[i];
+                }
+            }
+        }
+
+        void pushChildren(HeapNode node) {
+            HeapNode child = node.getChild();
+            if (child != null) {
+                HeapNode next = child;
+                do {
+                    if (!next.queued) {
+                        push(next);
+                    }
+                    next = next.getNext();
+                } while (next != child);
+            }
+        }
+
+        void heapify() {
+            for (int i = (this.size >>> 1) - 1; i >= 0; i--) {
+                siftDown(i, this.nodes[i]);
+            }
+        }
+
+        void clear() {
+            Arrays.fill(this.nodes, 0, this.size, null);
+            this.size = 0;
+        }
+
+        private void siftDown(int i, HeapNode node) {
+            int half = this.size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < this.size && this.nodes[child + 1].getKey() < this.nodes[child].getKey()) {
+                    child++;
+                }
+                if (node.getKey() <= this.nodes[child].getKey()) {
+                    break;
+                }
+                this.nodes[i] = this.nodes[child];
+                i = child;
+            }
+            this.nodes[i] = node;
+        }
+
+        private void grow(int capacity) {
+            if (capacity > this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, Math.max(capacity, this.nodes.length * 2));
+            }
+        }
+    }
+
+   /**
+    * private static class IdIndex
+    *
+    * The id index of a heap: an open-addressing hash table from int ids to nodes, with linear probing
+    * and at most half of the slots in use. An empty slot has a null node; removal shifts the following
+    * entries of the probe run back, so no tombstones are left.
+    */
+    private static class IdIndex {
+
+        private int[] keys = new int[16];
+        private HeapNode[] nodes = new HeapNode[16];
+        private int size;
+
+        int size() {
+            return this.size;
+        }
+
+        /**
+         * get(int id), put(int id, HeapNode node)
+         *
+         * Return the node of id, or null / add an id that is not in the index.
+         * Complexity: O(1) expected
+         */
+        HeapNode get(int id) {
+            int mask = this.keys.length - 1;
+            for (int i = slot(id, mask); this.nodes[i] != null; i = (i + 1) & mask) {
+                if (this.keys[i] == id) {
+                    return this.nodes[i];
+                }
+            }
+            return null;
+        }
+
+        void put(int id, HeapNode node) {
+            if (2 * (this.size + 1) > this.keys.length) {
+                resize(2 * this.keys.length);
+            }
+            int mask = this.keys.length - 1;
+            int i = slot(id, mask);
+            while (this.nodes[i] != null) {
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = id;
+            this.nodes[i] = node;
+            this.size++;
+        }
+
+        /**
+         * putAll(IdIndex other)
+         *
+         * Adds every entry of other, after checking that none of its ids is already here.
+         * Complexity: O(other's capacity)
+         */
+        void putAll(IdIndex other) {
+            for (int i = 0; i < other.nodes.length; i++) {
+                if (other.nodes[i] != null && get(other.keys[i]) != null) {
+                    throw new IllegalArgumentException("id " + other.keys[i] + " is in both heaps");
+                }
+            }
+            for (int i = 0; i < other.nodes.length; i++) {
+                if (other.nodes[i] != null) {
+                    put(other.keys[i], other.nodes[i]);
+                }
+            }
+        }
+
+        /**
+         * remove(int id, HeapNode node)
+         *
+         * Removes id if it maps to node, shifting back the rest of its probe run.
+         * Complexity: O(1) expected
+         */
+        void remove(int id, HeapNode node) {
+            int mask = this.keys.length - 1;
+            int i = slot(id, mask);
+            while (this.nodes[i] != node) {
+                if (this.nodes[i] == null) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            this.size--;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (this.nodes[j] == null) {
+                    break;
+                }
+                // the entry at j may move to the hole at i unless its home slot lies in (i, j]
+                int home = slot(this.keys[j], mask);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    this.keys[i] = this.keys[j];
+                    this.nodes[i] = this.nodes[j];
+                    i = j;
+                }
+            }
+            this.nodes[i] = null;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = this.keys;
+            HeapNode[] oldNodes = this.nodes;
+            this.keys = new int[capacity];
+            this.nodes = new HeapNode[capacity];
+            this.size = 0;
+            for (int i = 0; i < oldNodes.length; i++) {
+                if (oldNodes[i] != null) {
+                    put(oldKeys[i], oldNodes[i]);
+                }
+            }
+        }
+
+        private static int slot(int id, int mask) {
+            int h = id * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+
+   /**
+    * private class LinkTask
+    *
+    * A range of roots for linkParallel. A small range is linked into a new rank table; a larger one is
+    * split, and the tables of both halves are merged. linked counts the links of the whole range.
+    */
+    @SuppressWarnings("serial")
+    private class LinkTask extends RecursiveTask<HeapNode[]> {
+
+        static final int MIN_GRAIN = 1 << 12;
+
+        private final HeapNode[] roots;
+        private final int from;
+        private final int to;
+        private final int ranks;
+        private final int grain;
+        int linked;
+
+        LinkTask(HeapNode[] roots, int from, int to, int ranks, int grain) {
+            this.roots = roots;
+            this.from = from;
+            this.to = to;
+            this.ranks = ranks;
+            this.grain = grain;
+        }
+
+        protected HeapNode[] compute() {
+            if (this.to - this.from <= this.grain) {
+                HeapNode[] table = new HeapNode[this.ranks];
+                for (int i = this.from; i < this.to; i++) {
+                    HeapNode x = this.roots[i];
+                    int rank = x.getRank();
+                    while (table[rank] != null) {
+                        x = link(x, table[rank]);
+                        table[rank] = null;
+                        rank++;
+                    }
+                    table[rank] = x;
+                }
+                return table;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            LinkTask left = new LinkTask(this.roots, this.from, mid, this.ranks, this.grain);
+            LinkTask right = new LinkTask(this.roots, mid, this.to, this.ranks, this.grain);
+            left.fork();
+            HeapNode[] table = right.compute();
+            HeapNode[] other = left.join();
+            this.linked += left.linked + right.linked;
+
+            // add the tables rank by rank, carrying the tree of each link to the next rank
+            HeapNode carry = null;
+            for (int rank = 0; rank < this.ranks; rank++) {
+                HeapNode x = table[rank];
+                HeapNode y = other[rank];
+                if (x == null) {
+                    x = carry;
+                    carry = null;
+                }
+                else if (y == null) {
+                    y = carry;
+                    carry = null;
+                }
+                if (x != null && y != null) {
+                    table[rank] = carry;
+                    carry = link(x, y);
+                }
+                else {
+                    table[rank] = x != null ? x : y;
+                }
+            }
+            return table;
+        }
+
+        private HeapNode link(HeapNode x, HeapNode y) {
+            this.linked++;
+            if (x.getKey() < y.getKey()) {
+                connect(x, y);
+                return x;
+            }
+            connect(y, x);
+            return y;
+        }
+    }
+
+   /**
+    * private static class SortedIterator
+    *
+    * The iterator of sortedIterator(): a NodeFrontier seeded with the roots and the buffered nodes,
+    * where every returned node adds its children.
+    */
+    private static class SortedIterator implements PrimitiveIterator.OfInt {
+
+        private final NodeFrontier frontier = new NodeFrontier();
+
+        SortedIterator(HeapNode first, HeapNode[] queued, int queuedCount) {
+            if (first != null) {
+                this.frontier.addRing(first);
+                this.frontier.addQueued(queued, queuedCount);
+                this.frontier.heapify();
+            }
+        }
+
+        public boolean hasNext() {
+            return !this.frontier.isEmpty();
+        }
+
+        public int nextInt() {
+            if (this.frontier.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            HeapNode node = this.frontier.pop();
+            this.frontier.pushChildren(node);
+            return node.getKey();
+        }
+    }
+
+   /**
+    * public static class ConcurrentHeap
+    *
+    * A thread safe priority queue over integers made of several FibonacciHeap shards, each guarded by its
+    * own lock. Inserts go to a shard chosen by the inserting thread (or to any free shard when that one is
+    * busy), so producers rarely contend. Every shard publishes its minimum key in a volatile field, and
+    * deleteMin locks only the shard whose published minimum is the smallest.
+    *
+    * deleteMin is not linearizable against concurrent inserts: it removes a key that was the smallest of
+    * all published minimums when the shards were scanned.
+    */
+    public static class ConcurrentHeap {
+
+        private final Shard[] shards;
+        private final LongAdder size;
+
+        /**
+         * public ConcurrentHeap()
+         *
+         * Initialize new heap with one shard per available processor.
+         *
+         * Complexity: O(#shards)
+         */
+        public ConcurrentHeap() {
+            this(Runtime.getRuntime().availableProcessors());
+        }
+
+        /**
+         * public ConcurrentHeap(int shardCount)
+         *
+         * Initialize new heap with shardCount shards.
+         *
+         * Complexity: O(#shards)
+         */
+        public ConcurrentHeap(int shardCount) {
+            this.shards = new Shard[Math.max(shardCount, 1)];
+            for (int i = 0; i < this.shards.length; i++) {
+                this.shards[i] = new Shard(this);
+            }
+            this.size = new LongAdder();
+        }
+
+        /**
+         * public Handle insert(int key)
+         *
+         * Inserts the given key into a shard and returns its handle. The thread's own shard is tried first,
+         * then every other shard without waiting, and only if all of them are busy the thread waits for
+         * its own shard.
+         *
+         * Complexity: O(1) (O(#shards) under contention)
+         */
+        public Handle insert(int key) {
+            Handle handle = new Handle(key);
+            int home = (int) (Thread.currentThread().getId() % this.shards.length);
+            for (int i = 0; i < this.shards.length; i++) {
+                Shard shard = this.shards[(home + i) % this.shards.length];
+                if (shard.lock.tryLock()) {
+                    if (insertLocked(shard, handle)) {
+                        return handle;
+                    }
+                }
+            }
+            while (true) {
+                Shard shard = this.shards[home];
+                shard.lock.lock();
+                if (insertLocked(shard, handle)) {
+                    return handle;
+                }
+            }
+        }
+
+        /**
+         * public Handle findMin()
+         *
+         * Returns the handle whose key is the smallest published minimum, or null if the heap is empty.
+         * The handle may already have been removed by another thread when this method returns.
+         *
+         * Complexity: O(#shards)
+         */
+        public Handle findMin() {
+            while (true) {
+                Shard shard = minShard();
+                if (shard == null) {
+                    return null;
+                }
+                shard.lock.lock();
+                try {
+                    if (shard.mergedInto == null && !shard.heap.isEmpty()) {
+                        return (Handle) shard.heap.findMin();
+                    }
+                }
+                finally {
+                    shard.lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * public Handle deleteMin()
+         *
+         * Removes the minimum of the shard with the smallest published minimum and returns its handle,
+         * or returns null if the heap is empty.
+         *
+         * Complexity: O(#shards + log n) amortized
+         */
+        public Handle deleteMin() {
+            while (true) {
+                Shard shard = minShard();
+                if (shard == null) {
+                    return null;
+                }
+                long key = shard.minKey;
+                shard.lock.lock();
+                try {
+                    // retry when the shard changed between the scan and taking the lock
+                    if (shard.mergedInto == null && shard.minKey == key && key != Shard.EMPTY) {
+                        Handle handle = (Handle) shard.heap.findMin();
+                        shard.heap.deleteMin();
+                        shard.publish();
+                        handle.shard = null;
+                        this.size.decrement();
+                        return handle;
+                    }
+                }
+                finally {
+                    shard.lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * public void decreaseKey(Handle x, int delta)
+         *
+         * Decreases the key of x by a non-negative value delta, in the shard that currently holds x.
+         * Throws IllegalArgumentException if x is not in this heap.
+         *
+         * Complexity: O(log(n))
+         * amortized: O(1)
+         */
+        public void decreaseKey(Handle x, int delta) {
+            Shard shard = lockShard(x);
+            try {
+                shard.heap.decreaseKey(x, delta);
+                shard.publish();
+            }
+            finally {
+                shard.lock.unlock();
+            }
+        }
+
+        /**
+         * public void delete(Handle x)
+         *
+         * Deletes x from the shard that currently holds it.
+         * Throws IllegalArgumentException if x is not in this heap.
+         *
+         * Complexity: O(n)
+         * amortized: O(log n)
+         */
+        public void delete(Handle x) {
+            Shard shard = lockShard(x);
+            try {
+                shard.heap.delete(x);
+                shard.publish();
+                x.shard = null;
+                this.size.decrement();
+            }
+            finally {
+                shard.lock.unlock();
+            }
+        }
+
+        /**
+         * public void meld(ConcurrentHeap heap2)
+         *
+         * Melds every shard of heap2 into a shard of this heap. heap2 is left empty and its handles
+         * follow their nodes into this heap.
+         *
+         * Complexity: O(#shards)
+         */
+        public void meld(ConcurrentHeap heap2) {
+            if (heap2 == this) {
+                return;
+            }
+            for (int i = 0; i < heap2.shards.length; i++) {
+                Shard source = heap2.shards[i];
+                Shard target = this.shards[i % this.shards.length];
+                Shard lower = source.id < target.id ? source : target;
+                Shard higher = lower == source ? target : source;
+                lower.lock.lock();
+                higher.lock.lock();
+                try {
+                    int moved = source.heap.size();
+                    target.heap.meld(source.heap);
+                    target.publish();
+                    heap2.shards[i] = new Shard(heap2);
+                    source.mergedInto = target;
+                    source.minKey = Shard.EMPTY;
+                    this.size.add(moved);
+                    heap2.size.add(-moved);
+                }
+                finally {
+                    higher.lock.unlock();
+                    lower.lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * public int size()
+         *
+         * Returns the number of elements in the heap.
+         * Complexity: O(#shards)
+         */
+        public int size() {
+            return (int) this.size.sum();
+        }
+
+        /**
+         * public boolean isEmpty()
+         *
+         * Returns true if and only if the heap is empty.
+         * Complexity: O(#shards)
+         */
+        public boolean isEmpty() {
+            return this.size.sum() == 0;
+        }
+
+        /**
+         * insertLocked(Shard shard, Handle handle)
+         *
+         * Inserts handle into the locked shard and unlocks it. Returns false (without inserting)
+         * if the shard was melded away in the meantime.
+         */
+        private boolean insertLocked(Shard shard, Handle handle) {
+            try {
+                if (shard.mergedInto != null) {
+                    return false;
+                }
+                shard.heap.insertNode(handle);
+                handle.shard = shard;
+                if (handle.getKey() < shard.minKey) {
+                    shard.minKey = handle.getKey();
+                }
+                this.size.increment();
+                return true;
+            }
+            finally {
+                shard.lock.unlock();
+            }
+        }
+
+        /**
+         * minShard()
+         *
+         * Returns the shard with the smallest published minimum, or null if all shards are empty.
+         * Complexity: O(#shards)
+         */
+        private Shard minShard() {
+            Shard best = null;
+            long bestKey = Shard.EMPTY;
+            for (Shard shard : this.shards) {
+                long key = shard.minKey;
+                if (key < bestKey) {
+                    best = shard;
+                    bestKey = key;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * lockShard(Handle x)
+         *
+         * Locks and returns the shard which currently holds x, following melds. Throws
+         * IllegalArgumentException if x was removed or its shard belongs to another heap.
+         * Complexity: O(1) (plus the number of melds x went through)
+         */
+        private Shard lockShard(Handle x) {
+            while (true) {
+                Shard shard = x.shard;
+                if (shard == null) {
+                    throw new IllegalArgumentException("the handle was already removed from the heap");
+                }
+                while (shard.mergedInto != null) {
+                    shard = shard.mergedInto;
+                }
+                shard.lock.lock();
+                if (shard.mergedInto == null && x.shard != null) {
+                    if (shard.owner != this) {
+                        shard.lock.unlock();
+                        throw new IllegalArgumentException("the handle belongs to another heap");
+                    }
+                    x.shard = shard;
+                    return shard;
+                }
+                shard.lock.unlock();
+            }
+        }
+
+       /**
+        * public static class Handle
+        *
+        * A node of a ConcurrentHeap. It remembers the shard holding it, so decreaseKey and delete
+        * lock only that shard.
+        */
+        public static class Handle extends HeapNode {
+
+            private volatile Shard shard;
+
+            private Handle(int key) {
+                super(key);
+            }
+        }
+    }
+
+   /**
+    * public static class MultiQueue
+    *
+    * A relaxed concurrent priority queue over integers made of c*P FibonacciHeap shards, for P threads.
+    * Inserts go to a random shard. deleteMin picks two random shards, and removes the minimum of the one
+    * whose published minimum is smaller, using only tryLock. The removed key is not always the global
+    * minimum, but one of the few smallest keys; a larger c lowers contention and raises the rank error.
+    *
+    * An optional listener sees every removed key, so the rank error distribution can be measured
+    * against an exact queue.
+    */
+    public static class MultiQueue {
+
+        private final Shard[] shards;
+        private final LongAdder size;
+        private volatile IntConsumer listener;
+
+        /**
+         * public MultiQueue(int c)
+         *
+         * Initialize new queue with c shards per available processor.
+         *
+         * Complexity: O(#shards)
+         */
+        public MultiQueue(int c) {
+            this(c, Runtime.getRuntime().availableProcessors());
+        }
+
+        /**
+         * public MultiQueue(int c, int threads)
+         *
+         * Initialize new queue with c*threads shards (at least two).
+         *
+         * Complexity: O(#shards)
+         */
+        public MultiQueue(int c, int threads) {
+            this.shards = new Shard[Math.max(c * threads, 2)];
+            for (int i = 0; i < this.shards.length; i++) {
+                this.shards[i] = new Shard();
+            }
+            this.size = new LongAdder();
+        }
+
+        /**
+         * public HeapNode insert(int key)
+         *
+         * Inserts the given key into the first random shard whose lock is free and returns its node.
+         *
+         * Complexity: O(1) expected
+         */
+        public HeapNode insert(int key) {
+            HeapNode node = new HeapNode(key);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (true) {
+                Shard shard = this.shards[random.nextInt(this.shards.length)];
+                if (shard.lock.tryLock()) {
+                    try {
+                        shard.heap.insertNode(node);
+                        if (key < shard.minKey) {
+                            shard.minKey = key;
+                        }
+                        this.size.increment();
+                        return node;
+                    }
+                    finally {
+                        shard.lock.unlock();
+                    }
+                }
+            }
+        }
+
+        /**
+         * public HeapNode deleteMin()
+         *
+         * Removes the minimum of the better of two random shards and returns its node,
+         * or returns null if the queue is empty.
+         *
+         * Complexity: O(log n) amortized, expected
+         */
+        public HeapNode deleteMin() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int misses = 0;
+            while (true) {
+                Shard shard;
+                if (misses < this.shards.length) {
+                    Shard a = this.shards[random.nextInt(this.shards.length)];
+                    Shard b = this.shards[random.nextInt(this.shards.length)];
+                    shard = a.minKey <= b.minKey ? a : b;
+                }
+                else {
+                    // mostly empty queue: random pairs keep missing, so take any non-empty shard
+                    shard = anyShard(random.nextInt(this.shards.length));
+                }
+                if (shard == null || shard.minKey == Shard.EMPTY) {
+                    if (this.size.sum() == 0) {
+                        return null;
+                    }
+                    misses++;
+                    continue;
+                }
+                if (!shard.lock.tryLock()) {
+                    continue;
+                }
+                HeapNode node;
+                try {
+                    if (shard.heap.isEmpty()) {
+                        continue;
+                    }
+                    node = shard.heap.findMin();
+                    shard.heap.deleteMin();
+                    shard.publish();
+                    this.size.decrement();
+                }
+                finally {
+                    shard.lock.unlock();
+                }
+                IntConsumer listener = this.listener;
+                if (listener != null) {
+                    listener.accept(node.getKey());
+                }
+                return node;
+            }
+        }
+
+        /**
+         * public void setDeleteMinListener(IntConsumer listener)
+         *
+         * Sets the listener called with every key removed by deleteMin (on the removing thread),
+         * or removes it if listener is null.
+         *
+         * Complexity: O(1)
+         */
+        public void setDeleteMinListener(IntConsumer listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * public int size()
+         *
+         * Returns the number of elements in the queue.
+         * Complexity: O(#shards)
+         */
+        public int size() {
+            return (int) this.size.sum();
+        }
+
+        /**
+         * public boolean isEmpty()
+         *
+         * Returns true if and only if the queue is empty.
+         * Complexity: O(#shards)
+         */
+        public boolean isEmpty() {
+            return this.size.sum() == 0;
+        }
+
+        private Shard anyShard(int start) {
+            for (int i = 0; i < this.shards.length; i++) {
+                Shard shard = this.shards[(start + i) % this.shards.length];
+                if (shard.minKey != Shard.EMPTY) {
+                    return shard;
+                }
+            }
+            return null;
+        }
+    }
+
+   /**
+    * private static class Shard
+    *
+    * One FibonacciHeap of a ConcurrentHeap or MultiQueue, with its lock and its published minimum key
+    * (EMPTY when empty). A shard melded into another one forwards to it through mergedInto.
+    */
+    private static class Shard {
+
+        private static final long EMPTY = Long.MAX_VALUE;
+        private static final AtomicLong ids = new AtomicLong();
+
+        private final long id = ids.getAndIncrement();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final FibonacciHeap heap = new FibonacciHeap();
+        private final ConcurrentHeap owner;     // null in a MultiQueue
+        private volatile long minKey = EMPTY;
+        private volatile Shard mergedInto;
+
+        private Shard() {
+            this(null);
+        }
+
+        private Shard(ConcurrentHeap owner) {
+            this.owner = owner;
+        }
+
+        private void publish() {
+            this.minKey = this.heap.isEmpty() ? EMPTY : this.heap.findMin().getKey();
+        }
+    }
+
+   /**
+    * public abstract static class KeyedHeap
+    *
+    * The Fibonacci Heap algorithm over nodes of type N, for key types other than int. Subclasses store
+    * the key (and a payload) in their node type and define the key order in less(); LongHeap, DoubleHeap
+    * and ObjectHeap keep primitive keys unboxed.
+    */
+    public abstract static class KeyedHeap<N extends KeyedNode<N>> {
+
+        private int size;
+        private int trees;
+        private int marked;
+        private N first;
+        private N min;
+        private KeyedNode<?>[] rankTable;
+        private Owner owner;
+        private final HeapMetrics metrics;
+
+        /**
+         * protected KeyedHeap()
+         *
+         * Initialize new empty heap.
+         *
+         * Complexity: O(1)
+         */
+        protected KeyedHeap() {
+            this.rankTable = new KeyedNode<?>[0];
+            this.owner = new Owner();
+            this.metrics = new HeapMetrics() {
+                public int getSize() {
+                    return KeyedHeap.this.size;
+                }
+
+                public int getTrees() {
+                    return KeyedHeap.this.trees;
+                }
+
+                public int getMarked() {
+                    return KeyedHeap.this.marked;
+                }
+            };
+        }
+
+        /**
+         * protected abstract boolean less(N a, N b)
+         *
+         * Returns true if and only if the key of a is smaller than the key of b.
+         */
+        protected abstract boolean less(N a, N b);
+
+        /**
+         * public boolean isEmpty()
+         *
+         * Returns true if and only if the heap is empty.
+         *
+         * Complexity: O(1)
+         */
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * public N findMin()
+         *
+         * Returns the node of the heap whose key is minimal, or null if the heap is empty.
+         *
+         * Complexity: O(1)
+         */
+        public N findMin() {
+            return this.min;
+        }
+
+        /**
+         * public void deleteMin()
+         *
+         * Deletes the node containing the minimum key.
+         *
+         * Complexity: O(n)
+         * amortized: O(log n)
+         */
+        public void deleteMin() {
+            if (this.isEmpty()) {
+                return;
+            }
+            removeRoot(this.min);
+            if (this.first == null) {
+                this.min = null;
+                return;
+            }
+            consolidate();
+        }
+
+        /**
+         * public void meld(KeyedHeap heap2)
+         *
+         * Melds heap2 with the current heap and leaves heap2 empty. The nodes of heap2 now belong to
+         * this heap, as in FibonacciHeap.meld.
+         * Complexity: O(1)
+         */
+        public void meld(KeyedHeap<N> heap2) {
+            if (heap2 == this || heap2.isEmpty()) {
+                return;
+            }
+            this.owner = Owner.union(this.owner, heap2.owner);
+            heap2.owner = new Owner();
+            if (this.isEmpty()) {
+                this.first = heap2.first;
+                this.min = heap2.min;
+            }
+            else {
+                splice(this.first.prev, heap2.first);
+                if (less(heap2.min, this.min)) {
+                    this.min = heap2.min;
+                }
+            }
+            this.size += heap2.size;
+            this.trees += heap2.trees;
+            this.marked += heap2.marked;
+            heap2.first = null;
+            heap2.min = null;
+            heap2.size = 0;
+            heap2.trees = 0;
+            heap2.marked = 0;
+        }
+
+        /**
+         * public void delete(N x)
+         *
+         * Deletes the node x from the heap: x is cut to the root list and replaced there by its children.
+         * Consolidation is left to the next deleteMin, unless x is the minimum.
+         * Throws IllegalArgumentException if x is not a node of this heap.
+         *
+         * Complexity: O(log(n))
+         * amortized: O(deg(x))
+         */
+        public void delete(N x) {
+            checkOwner(x);
+            if (x == this.min) {
+                deleteMin();
+                return;
+            }
+            if (x.parent != null) {
+                this.metrics.recordCascade(cut(x));
+            }
+            removeRoot(x);
+        }
+
+        /**
+         * public int size()
+         *
+         * Returns the number of elements in the heap.
+         * Complexity: O(1)
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * public int[] countersRep()
+         *
+         * Return an array of counters. The i-th entry contains the number of trees of order i in the heap.
+         * An empty heap returns an empty array.
+         *
+         * Complexity: O(n)
+         */
+        public int[] countersRep() {
+            if (this.isEmpty()) {
+                return new int[] {};
+            }
+            int maxRank = 0;
+            N node = this.first;
+            do {
+                maxRank = Math.max(maxRank, node.rank);
+                node = node.next;
+            } while (node != this.first);
+
+            int[] arr = new int[maxRank + 1];
+            do {
+                arr[node.rank]++;
+                node = node.next;
+            } while (node != this.first);
+            return arr;
+        }
+
+        /**
+         * public int potential()
+         *
+         * Returns the current potential of the heap: #trees + 2*#marked
+         *
+         * Complexity: O(1)
+         */
+        public int potential() {
+            return this.trees + 2 * this.marked;
+        }
+
+        /**
+         * getTrees(), getMarked(), getFirst(), getMetrics()
+         *
+         * Return the field as described.
+         *
+         * Complexity: O(1)
+         */
+
+        public int getTrees() {
+            return this.trees;
+        }
+
+        public int getMarked() {
+            return this.marked;
+        }
+
+        public N getFirst() {
+            return this.first;
+        }
+
+        public HeapMetrics getMetrics() {
+            return this.metrics;
+        }
+
+        /**
+         * protected N insertNode(N node)
+         *
+         * Inserts the given single node as a new tree and returns it.
+         * Complexity: O(1)
+         */
+        protected N insertNode(N node) {
+            node.owner = this.owner;
+            node.next = node;
+            node.prev = node;
+            if (this.first == null) {
+                this.min = node;
+            }
+            else {
+                splice(this.first.prev, node);
+                if (less(node, this.min)) {
+                    this.min = node;
+                }
+            }
+            this.first = node;
+            this.size++;
+            this.trees++;
+            return node;
+        }
+
+        /**
+         * protected void checkOwner(N x)
+         *
+         * Throws IllegalArgumentException unless x is currently a node of this heap. Subclasses call it
+         * before changing the key of x.
+         *
+         * Complexity: O(α(#melds)) amortized
+         */
+        protected void checkOwner(N x) {
+            if (x.owner == null) {
+                throw new IllegalArgumentException("the node is not in a heap");
+            }
+            x.owner = x.owner.find();
+            if (x.owner != this.owner) {
+                throw new IllegalArgumentException("the node belongs to another heap");
+            }
+        }
+
+        /**
+         * protected void keyDecreased(N x)
+         *
+         * Restores the heap after the key of x was lowered: cuts x if it is now smaller than its parent
+         * (with cascading cuts), and updates the minimum.
+         *
+         * Complexity: O(log(n))
+         * amortized: O(1)
+         */
+        protected void keyDecreased(N x) {
+            if (x.parent != null && less(x, x.parent)) {
+                this.metrics.recordCascade(cut(x));
+            }
+            if (less(x, this.min)) {
+                this.min = x;
+            }
+        }
+
+        /**
+         * removeRoot(N z)
+         *
+         * Removes the root z from the heap, moving its children (unmarked) to the root list.
+         * The minimum is not updated.
+         *
+         * Complexity: O(deg(z))
+         */
+        private void removeRoot(N z) {
+            N child = z.child;
+            if (child != null) {
+                N node = child;
+                do {
+                    node.parent = null;
+                    if (node.marked) {
+                        node.marked = false;
+                        this.marked--;
+                    }
+                    node = node.next;
+                } while (node != child);
+                splice(z, child);
+                this.trees += z.rank;
+            }
+
+            if (z.next == z) {
+                this.first = null;
+            }
+            else {
+                z.prev.next = z.next;
+                z.next.prev = z.prev;
+                if (this.first == z) {
+                    this.first = z.next;
+                }
+            }
+            z.child = null;
+            z.next = null;
+            z.prev = null;
+            z.owner = null;
+            this.trees--;
+            this.size--;
+        }
+
+        /**
+         * consolidate()
+         *
+         * Links the trees of the root list until no two roots share a rank, then rebuilds
+         * the root list and the minimum from the rank table.
+         *
+         * Complexity: O(#trees + log n)
+         */
+        @SuppressWarnings("unchecked")
+        private void consolidate() {
+            int length = rankBound(this.size) + 1;
+            if (this.rankTable.length < length) {
+                this.rankTable = new KeyedNode<?>[length];
+            }
+            N[] table = (N[]) this.rankTable;
+            N node = this.first;
+            int linked = 0;
+            for (int count = this.trees; count > 0; count--) {
+                N next = node.next;
+                N x = node;
+                x.next = x;
+                x.prev = x;
+                int rank = x.rank;
+                while (table[rank] != null) {
+                    N y = table[rank];
+                    table[rank] = null;
+                    if (less(y, x)) {
+                        N tmp = x;
+                        x = y;
+                        y = tmp;
+                    }
+                    link(x, y);
+                    linked++;
+                    rank++;
+                }
+                table[rank] = x;
+                node = next;
+            }
+
+            this.first = null;
+            this.min = null;
+            this.trees = 0;
+            int maxRank = 0;
+            for (int i = 0; i < table.length; i++) {
+                N x = table[i];
+                if (x == null) {
+                    continue;
+                }
+                table[i] = null;
+                maxRank = i;
+                if (x.marked) {
+                    x.marked = false;
+                    this.marked--;
+                }
+                if (this.first == null) {
+                    this.first = x;
+                    this.min = x;
+                }
+                else {
+                    splice(this.first.prev, x);
+                    if (less(x, this.min)) {
+                        this.min = x;
+                    }
+                }
+                this.trees++;
+            }
+            this.metrics.recordConsolidation(linked, maxRank);
+        }
+
+        private void link(N parent, N child) {
+            child.parent = parent;
+            if (parent.child == null) {
+                parent.child = child;
+            }
+            else {
+                splice(parent.child.prev, child);
+            }
+            parent.rank++;
+        }
+
+        /**
+         * cut(N x)
+         *
+         * Cuts node x from its parent node and adds it as a new tree.
+         * Continues with cascading cuts as long as the parent is marked.
+         * Returns the number of cut nodes.
+         *
+         * Complexity: O(1) per cut node
+         */
+        private int cut(N x) {
+            int cuts = 0;
+            while (true) {
+                N parent = x.parent;
+                if (x.next == x) {
+                    parent.child = null;
+                }
+                else {
+                    x.prev.next = x.next;
+                    x.next.prev = x.prev;
+                    if (parent.child == x) {
+                        parent.child = x.next;
+                    }
+                }
+                parent.rank--;
+                x.parent = null;
+                x.next = x;
+                x.prev = x;
+                splice(this.first.prev, x);
+                this.first = x;
+                this.trees++;
+                if (x.marked) {
+                    x.marked = false;
+                    this.marked--;
+                }
+                cuts++;
+
+                if (parent.parent == null) {     // parent is a root
+                    return cuts;
+                }
+                if (!parent.marked) {
+                    parent.marked = true;
+                    this.marked++;
+                    return cuts;
+                }
+                x = parent;
+            }
+        }
+
+        /**
+         * splice(N a, N b)
+         *
+         * Inserts the circular list starting at b right after node a.
+         * Complexity: O(1)
+         */
+        private void splice(N a, N b) {
+            N aNext = a.next;
+            N bLast = b.prev;
+            a.next = b;
+            b.prev = a;
+            bLast.next = aNext;
+            aNext.prev = bLast;
+        }
+    }
+
+   /**
+    * public abstract static class KeyedNode
+    *
+    * The links, rank and mark of a KeyedHeap node, and its primitive payload slot (data), which holds an
+    * int or long without boxing. Subclasses add the key and the object payload.
+    */
+    public abstract static class KeyedNode<N extends KeyedNode<N>> {
+
+        // package-private: members of a type variable's bound cannot be reached if private
+        N child;
+        N next;
+        N prev;
+        N parent;
+        int rank;
+        boolean marked;
+        Owner owner;
+        private long data;
+
+        /**
+         * public long getData(), public void setData(long data)
+         *
+         * Get / set the primitive payload of the node.
+         *
+         * Complexity: O(1)
+         */
+        public long getData() {
+            return this.data;
+        }
+
+        public void setData(long data) {
+            this.data = data;
+        }
+
+        /**
+         * getRank(), isMarked(), getChild(), getNext(), getPrev(), getParent()
+         *
+         * Return the field as described.
+         *
+         * Complexity: O(1)
+         */
+
+        public int getRank() {
+            return this.rank;
+        }
+
+        public boolean isMarked() {
+            return this.marked;
+        }
+
+        public N getChild() {
+            return this.child;
+        }
+
+        public N getNext() {
+            return this.next;
+        }
+
+        public N getPrev() {
+            return this.prev;
+        }
+
+        public N getParent() {
+            return this.parent;
+        }
+    }
+
+   /**
+    * public static class LongHeap
+    *
+    * A Fibonacci Heap over long keys (such as nanosecond timestamps), with an object and a long payload per node.
+    */
+    public static class LongHeap<V> extends KeyedHeap<LongHeap.Node<V>> {
+
+        /**
+         * public Node insert(long key, V value)
+         *
+         * Creates a node with the given key and payload, inserts it into the heap and returns it.
+         *
+         * Complexity: O(1)
+         */
+        public Node<V> insert(long key, V value) {
+            return insertNode(new Node<>(key, value));
+        }
+
+        /**
+         * public Node insert(long key, long data, V value)
+         *
+         * Like insert(key, value), and also stores data in the primitive payload slot of the node.
+         *
+         * Complexity: O(1)
+         */
+        public Node<V> insert(long key, long data, V value) {
+            Node<V> node = new Node<>(key, value);
+            node.setData(data);
+            return insertNode(node);
+        }
+
+        /**
+         * public void decreaseKey(Node x, long delta)
+         *
+         * Decreases the key of the node x by a non-negative value delta.
+         * Throws IllegalArgumentException if delta is negative, leaving the heap unchanged. The
+         * subtraction wraps around like long arithmetic does, for subclasses that order keys wrap-safely.
+         *
+         * Complexity: O(log(n))
+         * amortized: O(1)
+         */
+        public void decreaseKey(Node<V> x, long delta) {
+            checkOwner(x);
+            if (delta < 0) {
+                throw new IllegalArgumentException("delta " + delta + " is negative");
+            }
+            x.key -= delta;
+            keyDecreased(x);
+        }
+
+        protected boolean less(Node<V> a, Node<V> b) {
+            return a.key < b.key;
+        }
+
+        public static class Node<V> extends KeyedNode<Node<V>> {
+
+            private long key;
+            private V value;
+
+            private Node(long key, V value) {
+                this.key = key;
+                this.value = value;
+            }
+
+            public long getKey() {
+                return this.key;
+            }
+
+            public V getValue() {
+                return this.value;
+            }
+
+            public void setValue(V value) {
+                this.value = value;
+            }
+        }
+    }
+
+   /**
+    * public static class DoubleHeap
+    *
+    * A Fibonacci Heap over double keys (such as path costs), with an object and a long payload per node.
+    * Keys are ordered by the < operator, so NaN keys are rejected with IllegalArgumentException.
+    */
+    public static class DoubleHeap<V> extends KeyedHeap<DoubleHeap.Node<V>> {
+
+        /**
+         * public Node insert(double key, V value)
+         *
+         * Creates a node with the given key and payload, inserts it into the heap and returns it.
+         *
+         * Complexity: O(1)
+         */
+        public Node<V> insert(double key, V value) {
+            checkKey(key);
+            return insertNode(new Node<>(key, value));
+        }
+
+        /**
+         * public Node insert(double key, long data, V value)
+         *
+         * Like insert(key, value), and also stores data in the primitive payload slot of the node.
+         *
+         * Complexity: O(1)
+         */
+        public Node<V> insert(double key, long data, V value) {
+            checkKey(key);
+            Node<V> node = new Node<>(key, value);
+            node.setData(data);
+            return insertNode(node);
+        }
+
+        /**
+         * public void decreaseKey(Node x, double delta)
+         *
+         * Decreases the key of the node x by a non-negative value delta.
+         * Throws IllegalArgumentException if delta is negative or NaN, or if the new key would be NaN
+         * (an infinite key decreased by an infinite delta), leaving the heap unchanged.
+         *
+         * Complexity: O(log(n))
+         * amortized: O(1)
+         */
+        public void decreaseKey(Node<V> x, double delta) {
+            checkOwner(x);
+            if (!(delta >= 0)) {
+                throw new IllegalArgumentException("delta " + delta + " is negative or NaN");
+            }
+            double key = x.key - delta;
+            checkKey(key);
+            x.key = key;
+            keyDecreased(x);
+        }
+
+        protected boolean less(Node<V> a, Node<V> b) {
+            return a.key < b.key;
+        }
+
+        private static void checkKey(double key) {
+            if (Double.isNaN(key)) {
+                throw new IllegalArgumentException("the key is NaN");
+            }
+        }
+
+        public static class Node<V> extends KeyedNode<Node<V>> {
+
+            private double key;
+            private V value;
+
+            private Node(double key, V value) {
+                this.key = key;
+                this.value = value;
+            }
+
+            public double getKey() {
+                return this.key;
+            }
+
+            public V getValue() {
+                return this.value;
+            }
+
+            public void setValue(V value) {
+                this.value = value;
+            }
+        }
+    }
+
+   /**
+    * public static class ObjectHeap
+    *
+    * A Fibonacci Heap over keys of any type, ordered by a Comparator, with an object and a long payload per node.
+    */
+    public static class ObjectHeap<K, V> extends KeyedHeap<ObjectHeap.Node<K, V>> {
+
+        private final Comparator<? super K> comparator;
+
+        /**
+         * public ObjectHeap(Comparator comparator)
+         *
+         * Initialize new heap whose keys are ordered by comparator.
+         *
+         * Complexity: O(1)
+         */
+        public ObjectHeap(Comparator<? super K> comparator) {
+            this.comparator = comparator;
+        }
+
+        /**
+         * public Node insert(K key, V value)
+         *
+         * Creates a node with the given key and payload, inserts it into the heap and returns it.
+         *
+         * Complexity: O(1)
+         */
+        public Node<K, V> insert(K key, V value) {
+            return insertNode(new Node<>(key, value));
+        }
+
+        /**
+         * public Node insert(K key, long data, V value)
+         *
+         * Like insert(key, value), and also stores data in the primitive payload slot of the node.
+         *
+         * Complexity: O(1)
+         */
+        public Node<K, V> insert(K key, long data, V value) {
+            Node<K, V> node = new Node<>(key, value);
+            node.setData(data);
+            return insertNode(node);
+        }
+
+        /**
+         * public void decreaseKey(Node x, K key)
+         *
+         * Replaces the key of the node x by key, which must not be larger than the current key.
+         *
+         * Complexity: O(log(n))
+         * amortized: O(1)
+         */
+        public void decreaseKey(Node<K, V> x, K key) {
+            checkOwner(x);
+            if (this.comparator.compare(key, x.key) > 0) {
+                throw new IllegalArgumentException("the new key is larger than the current key");
+            }
+            x.key = key;
+            keyDecreased(x);
+        }
+
+        protected boolean less(Node<K, V> a, Node<K, V> b) {
+            return this.comparator.compare(a.key, b.key) < 0;
+        }
+
+        public static class Node<K, V> extends KeyedNode<Node<K, V>> {
+
+            private K key;
+            private V value;
+
+            private Node(K key, V value) {
+                this.key = key;
+                this.value = value;
+            }
+
+            public K getKey() {
+                return this.key;
+            }
+
+            public V getValue() {
+                return this.value;
+            }
+
+            public void setValue(V value) {
+                this.value = value;
+            }
+        }
+    }
+
+   /**
+    * public static class PairingHeap
+    *
+    * A two-pass pairing heap: one heap-ordered tree whose children form a list. insert, meld and
+    * decreaseKey only link with the root; deleteMin links the children of the root in pairs from the
+    * left and then from the right.
+    */
+    public static class PairingHeap implements AddressablePriorityQueue<PairingHeap.Node, PairingHeap> {
+
+        private Node root;
+        private int size;
+        private Owner owner = new Owner();
+
+        public boolean isEmpty() {
+            return this.root == null;
+        }
+
+        /**
+         * public Node insert(int key)
+         *
+         * Complexity: O(1)
+         */
+        public Node insert(int key) {
+            return insert(key, 0);
+        }
+
+        /**
+         * public Node insert(int key, int value)
+         *
+         * Complexity: O(1)
+         */
+        public Node insert(int key, int value) {
+            Node node = new Node(key, value);
+            node.owner = this.owner;
+            this.root = this.root == null ? node : link(this.root, node);
+            this.size++;
+            return node;
+        }
+
+        /**
+         * public Node findMin()
+         *
+         * Complexity: O(1)
+         */
+        public Node findMin() {
+            return this.root;
+        }
+
+        /**
+         * public void deleteMin()
+         *
+         * Complexity: O(n)
+         * amortized: O(log n)
+         */
+        public void deleteMin() {
+            if (this.root == null) {
+                return;
+            }
+            Node min = this.root;
+            this.root = mergePairs(min.child);
+            min.child = null;
+            min.owner = null;
+            this.size--;
+        }
+
+        /**
+         * public void decreaseKey(Node x, int delta)
+         *
+         * Complexity: O(1)
+         * amortized: o(log n)
+         */
+        public void decreaseKey(Node x, int delta) {
+            x.owner = Owner.check(x.owner, this.owner);
+            x.key -= delta;
+            if (x != this.root) {
+                detach(x);
+                this.root = link(this.root, x);
+            }
+        }
+
+        /**
+         * public void delete(Node x)
+         *
+         * Complexity: O(n)
+         * amortized: O(log n)
+         */
+        public void delete(Node x) {
+            x.owner = Owner.check(x.owner, this.owner);
+            if (x == this.root) {
+                deleteMin();
+                return;
+            }
+            detach(x);
+            Node children = mergePairs(x.child);
+            x.child = null;
+            x.owner = null;
+            if (children != null) {
+                this.root = link(this.root, children);
+            }
+            this.size--;
+        }
+
+        /**
+         * public void meld(PairingHeap heap2)
+         *
+         * Melds heap2 with the current heap and leaves heap2 empty.
+         * Complexity: O(1)
+         */
+        public void meld(PairingHeap heap2) {
+            if (heap2 == this || heap2.root == null) {
+                return;
+            }
+            this.root = this.root == null ? heap2.root : link(this.root, heap2.root);
+            this.size += heap2.size;
+            this.owner = Owner.union(this.owner, heap2.owner);
+            heap2.owner = new Owner();
+            heap2.root = null;
+            heap2.size = 0;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * link(Node a, Node b)
+         *
+         * Links two trees: the root with the larger key becomes the first child of the other.
+         * Returns the new root.
+         * Complexity: O(1)
+         */
+        private static Node link(Node a, Node b) {
+            if (b.key < a.key) {
+                Node tmp = a;
+                a = b;
+                b = tmp;
+            }
+            b.prev = a;
+            b.next = a.child;
+            if (a.child != null) {
+                a.child.prev = b;
+            }
+            a.child = b;
+            a.next = null;
+            a.prev = null;
+            return a;
+        }
+
+        /**
+         * detach(Node x)
+         *
+         * Removes the tree of x (not the root) from its parent's child list.
+         * Complexity: O(1)
+         */
+        private static void detach(Node x) {
+            if (x.prev.child == x) {     // x is the first child
+                x.prev.child = x.next;
+            }
+            else {
+                x.prev.next = x.next;
+            }
+            if (x.next != null) {
+                x.next.prev = x.prev;
+            }
+            x.next = null;
+            x.prev = null;
+        }
+
+        /**
+         * mergePairs(Node first)
+         *
+         * Links the list of trees starting at first into one tree and returns it: first the pairs from
+         * left to right, then the results from right to left. The pairs are kept in a stack threaded
+         * through prev, so no memory is allocated.
+         * Complexity: O(length of the list)
+         */
+        private static Node mergePairs(Node first) {
+            Node stack = null;
+            Node node = first;
+            while (node != null) {
+                Node a = node;
+                Node b = a.next;
+                node = b == null ? null : b.next;
+                a.next = null;
+                a.prev = null;
+                Node pair = a;
+                if (b != null) {
+                    b.next = null;
+                    b.prev = null;
+                    pair = link(a, b);
+                }
+                pair.prev = stack;
+                stack = pair;
+            }
+            Node result = null;
+            while (stack != null) {
+                Node next = stack.prev;
+                stack.prev = null;
+                result = result == null ? stack : link(stack, result);
+                stack = next;
+            }
+            return result;
+        }
+
+        public static class Node implements AddressablePriorityQueue.Handle {
+
+            private int key;
+            private final int value;
+            private Node child;
+            private Node next;
+            private Node prev;     // the previous sibling, or the parent of a first child
+            private Owner owner;
+
+            private Node(int key, int value) {
+                this.key = key;
+                this.value = value;
+            }
+
+            public int getKey() {
+                return this.key;
+            }
+
+            public int getValue() {
+                return this.value;
+            }
+        }
+    }
+
+   /**
+    * public static class RankPairingHeap
+    *
+    * A rank-pairing heap (type 2) by Haeupler, Sen and Tarjan: a list of half-ordered half-trees,
+    * stored as binary trees whose roots have only a left child. deleteMin links half-trees of equal
+    * rank in a single pass, and decreaseKey cuts a subtree and repairs the ranks on its path with the
+    * type-2 rank rule, so no cascading cuts are needed.
+    */
+    public static class RankPairingHeap implements AddressablePriorityQueue<RankPairingHeap.Node, RankPairingHeap> {
+
+        private Node first;     // the roots, linked through right
+        private Node last;
+        private Node min;
+        private int size;
+        private Node[] rankTable = new Node[0];
+        private Owner owner = new Owner();
+
+        public boolean isEmpty() {
+            return this.min == null;
+        }
+
+        /**
+         * public Node insert(int key)
+         *
+         * Complexity: O(1)
+         */
+        public Node insert(int key) {
+            return insert(key, 0);
+        }
+
+        /**
+         * public Node insert(int key, int value)
+         *
+         * Complexity: O(1)
+         */
+        public Node insert(int key, int value) {
+            Node node = new Node(key, value);
+            node.owner = this.owner;
+            addRoot(node);
+            this.size++;
+            return node;
+        }
+
+        /**
+         * public Node findMin()
+         *
+         * Complexity: O(1)
+         */
+        public Node findMin() {
+            return this.min;
+        }
+
+        /**
+         * public void deleteMin()
+         *
+         * Removes the minimum root, turns the right spine of its left child into roots, and links
+         * the roots of equal rank in one pass.
+         *
+         * Complexity: O(n)
+         * amortized: O(log n)
+         */
+        public void deleteMin() {
+            if (this.min == null) {
+                return;
+            }
+            Node removed = this.min;
+            Node root = this.first;
+            this.first = null;
+            this.last = null;
+            this.min = null;
+            int length = rankBound(this.size) + 1;
+            if (this.rankTable.length < length) {
+                this.rankTable = new Node[length];
+            }
+            while (root != null) {
+                Node next = root.right;
+                root.right = null;
+                if (root != removed) {
+                    pass(root);
+                }
+                root = next;
+            }
+            Node node = removed.left;
+            while (node != null) {
+                Node next = node.right;
+                node.right = null;
+                node.parent = null;
+                node.rank = rank(node.left) + 1;
+                pass(node);
+                node = next;
+            }
+            for (int i = 0; i < this.rankTable.length; i++) {
+                if (this.rankTable[i] != null) {
+                    addRoot(this.rankTable[i]);
+                    this.rankTable[i] = null;
+                }
+            }
+            removed.left = null;
+            removed.owner = null;
+            this.size--;
+        }
+
+        /**
+         * public void decreaseKey(Node x, int delta)
+         *
+         * Complexity: O(log n)
+         * amortized: O(1)
+         */
+        public void decreaseKey(Node x, int delta) {
+            x.owner = Owner.check(x.owner, this.owner);
+            x.key -= delta;
+            if (x.parent == null) {
+                if (x.key < this.min.key) {
+                    this.min = x;
+                }
+                return;
+            }
+            cut(x);
+            addRoot(x);
+        }
+
+        /**
+         * public void delete(Node x)
+         *
+         * Cuts x to the root list if needed, and removes it there like the minimum.
+         *
+         * Complexity: O(n)
+         * amortized: O(log n)
+         */
+        public void delete(Node x) {
+            x.owner = Owner.check(x.owner, this.owner);
+            if (x.parent != null) {
+                cut(x);
+                addRoot(x);
+            }
+            this.min = x;
+            deleteMin();
+        }
+
+        /**
+         * public void meld(RankPairingHeap heap2)
+         *
+         * Melds heap2 with the current heap and leaves heap2 empty.
+         * Complexity: O(1)
+         */
+        public void meld(RankPairingHeap heap2) {
+            if (heap2 == this || heap2.isEmpty()) {
+                return;
+            }
+            if (this.isEmpty()) {
+                this.first = heap2.first;
+                this.min = heap2.min;
+            }
+            else {
+                this.last.right = heap2.first;
+                if (heap2.min.key < this.min.key) {
+                    this.min = heap2.min;
+                }
+            }
+            this.last = heap2.last;
+            this.size += heap2.size;
+            this.owner = Owner.union(this.owner, heap2.owner);
+            heap2.owner = new Owner();
+            heap2.first = null;
+            heap2.last = null;
+            heap2.min = null;
+            heap2.size = 0;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * pass(Node root)
+         *
+         * One step of the linking pass of deleteMin: keeps root in the rank table, or links it with the
+         * root of the same rank found there and moves the result to the root list.
+         */
+        private void pass(Node root) {
+            if (root.rank >= this.rankTable.length) {
+                this.rankTable = Arrays.copyOf(this.rankTable, 2 * root.rank);
+            }
+            Node other = this.rankTable[root.rank];
+            if (other == null) {
+                this.rankTable[root.rank] = root;
+                return;
+            }
+            this.rankTable[root.rank] = null;
+            addRoot(link(root, other));
+        }
+
+        /**
+         * link(Node a, Node b)
+         *
+         * Links two half-trees of equal rank: the root with the larger key becomes the left child of the
+         * other, taking over its old left subtree as its right subtree. Returns the new root.
+         * Complexity: O(1)
+         */
+        private static Node link(Node a, Node b) {
+            if (b.key < a.key) {
+                Node tmp = a;
+                a = b;
+                b = tmp;
+            }
+            b.right = a.left;
+            if (b.right != null) {
+                b.right.parent = b;
+            }
+            b.parent = a;
+            a.left = b;
+            a.rank++;
+            return a;
+        }
+
+        /**
+         * cut(Node x)
+         *
+         * Detaches x with its left subtree, puts its right subtree in its place, and lowers the ranks on
+         * the path above by the type-2 rule until a rank does not change.
+         * Complexity: O(length of the repaired path)
+         */
+        private static void cut(Node x) {
+            Node parent = x.parent;
+            Node y = x.right;
+            if (parent.left == x) {
+                parent.left = y;
+            }
+            else {
+                parent.right = y;
+            }
+            if (y != null) {
+                y.parent = parent;
+            }
+            x.right = null;
+            x.parent = null;
+            x.rank = rank(x.left) + 1;
+
+            for (Node u = parent; u != null; u = u.parent) {
+                int k;
+                if (u.parent == null) {     // a root has only a left child
+                    k = rank(u.left) + 1;
+                }
+                else {
+                    int r1 = rank(u.left);
+                    int r2 = rank(u.right);
+                    k = Math.abs(r1 - r2) > 1 ? Math.max(r1, r2) : Math.max(r1, r2) + 1;
+                }
+                if (k >= u.rank) {
+                    break;
+                }
+                u.rank = k;
+            }
+        }
+
+        private static int rank(Node node) {
+            return node == null ? -1 : node.rank;
+        }
+
+        private void addRoot(Node node) {
+            node.right = null;
+            if (this.first == null) {
+                this.first = node;
+                this.min = node;
+            }
+            else {
+                this.last.right = node;
+                if (node.key < this.min.key) {
+                    this.min = node;
+                }
+            }
+            this.last = node;
+        }
+
+        public static class Node implements AddressablePriorityQueue.Handle {
+
+            private int key;
+            private final int value;
+            private int rank;
+            private Node left;
+            private Node right;
+            private Node parent;
+            private Owner owner;
+
+            private Node(int key, int value) {
+                this.key = key;
+                this.value = value;
+            }
+
+            public int getKey() {
+                return this.key;
+            }
+
+            public int getValue() {
+                return this.value;
+            }
+        }
+    }
+
+   /**
+    * public static class BinaryHeap
+    *
+    * An indexed binary heap: the nodes are kept in an array in heap order, and every node holds its
+    * index in the array, so decreaseKey and delete can sift it from there. Every operation but
+    * findMin is O(log n) in the worst case; meld inserts the nodes of heap2 one by one.
+    */
+    public static class BinaryHeap implements AddressablePriorityQueue<BinaryHeap.Node, BinaryHeap> {
+
+        private Node[] nodes = new Node[16];
+        private int size;
+        private Owner owner = new Owner();
+
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * public Node insert(int key)
+         *
+         * Complexity: O(log n)
+         */
+        public Node insert(int key) {
+            return insert(key, 0);
+        }
+
+        /**
+         * public Node insert(int key, int value)
+         *
+         * Complexity: O(log n)
+         */
+        public Node insert(int key, int value) {
+            Node node = new Node(key, value);
+            node.owner = this.owner;
+            add(node);
+            return node;
+        }
+
+        /**
+         * public Node findMin()
+         *
+         * Complexity: O(1)
+         */
+        public Node findMin() {
+            return this.size == 0 ? null : this.nodes[0];
+        }
+
+        /**
+         * public void deleteMin()
+         *
+         * Complexity: O(log n)
+         */
+        public void deleteMin() {
+            if (this.size > 0) {
+                delete(this.nodes[0]);
+            }
+        }
+
+        /**
+         * public void decreaseKey(Node x, int delta)
+         *
+         * Complexity: O(log n)
+         */
+        public void decreaseKey(Node x, int delta) {
+            x.owner = Owner.check(x.owner, this.owner);
+            x.key -= delta;
+            siftUp(x.index, x);
+        }
+
+        /**
+         * public void delete(Node x)
+         *
+         * Moves the last node into the place of x and sifts it up or down.
+         *
+         * Complexity: O(log n)
+         */
+        public void delete(Node x) {
+            x.owner = Owner.check(x.owner, this.owner);
+            int i = x.index;
+            Node last = this.nodes[--this.size];
+            this.nodes[this.size] = null;
+            x.index = -1;
+            x.owner = null;
+            if (last != x) {
+                if (i > 0 && last.key < this.nodes[(i - 1) >>> 1].key) {
+                    siftUp(i, last);
+                }
+                else {
+                    siftDown(i, last);
+                }
+            }
+        }
+
+        /**
+         * public void meld(BinaryHeap heap2)
+         *
+         * Complexity: O(heap2.size() * log(n))
+         */
+        public void meld(BinaryHeap heap2) {
+            if (heap2 == this) {
+                return;
+            }
+            for (int i = 0; i < heap2.size; i++) {
+                add(heap2.nodes[i]);
+                heap2.nodes[i] = null;
+            }
+            heap2.size = 0;
+            this.owner = Owner.union(this.owner, heap2.owner);
+            heap2.owner = new Owner();
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        private void add(Node node) {
+            if (this.size == this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, 2 * this.nodes.length);
+            }
+            siftUp(this.size++, node);
+        }
+
+        private void siftUp(int i, Node node) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                Node above = this.nodes[parent];
+                if (above.key <= node.key) {
+                    break;
+                }
+                this.nodes[i] = above;
+                above.index = i;
+                i = parent;
+            }
+            this.nodes[i] = node;
+            node.index = i;
+        }
+
+        private void siftDown(int i, Node node) {
+            int half = this.size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < this.size && this.nodes[child + 1].key < this.nodes[child].key) {
+                    child++;
+                }
+                Node below = this.nodes[child];
+                if (node.key <= below.key) {
+                    break;
+                }
+                this.nodes[i] = below;
+                below.index = i;
+                i = child;
+            }
+            this.nodes[i] = node;
+            node.index = i;
+        }
+
+        public static class Node implements AddressablePriorityQueue.Handle {
+
+            private int key;
+            private final int value;
+            private int index;
+            private Owner owner;
+
+            private Node(int key, int value) {
+                this.key = key;
+                this.value = value;
+            }
+
+            public int getKey() {
+                return this.key;
+            }
+
+            public int getValue() {
+                return this.value;
+            }
+        }
+    }
+
+   /**
+    * public static class RadixHeap
+    *
+    * A monotone radix heap: every key must be at least the last minimum, the key last removed by
+    * deleteMin. A node is kept in the bucket of the highest bit in which its key differs from that
+    * minimum, so insert and decreaseKey only move it between bucket lists, and deleteMin redistributes
+    * one bucket into lower ones. findMin leaves the buckets and the last minimum alone, so a key below
+    * the current minimum can still be inserted until that minimum is deleted. Keys that break the
+    * monotonicity are rejected with IllegalArgumentException.
+    * The nodes are HeapNodes: next and prev link the bucket lists, and rank holds the bucket. A
+    * FibonacciHeap in MONOTONE mode keeps its nodes in a RadixHeap and checks their owner itself, through
+    * the package-private methods that leave the owner alone.
+    */
+    public static class RadixHeap implements AddressablePriorityQueue<HeapNode, RadixHeap> {
+
+        private final HeapNode[] buckets = new HeapNode[33];
+        private int last = Integer.MIN_VALUE;
+        private HeapNode min;       // the minimum found by findMin outside of bucket 0, null if unknown
+        private int size;
+        private Owner owner = new Owner();
+
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * public HeapNode insert(int key)
+         *
+         * Complexity: O(1)
+         */
+        public HeapNode insert(int key) {
+            return insert(key, 0);
+        }
+
+        /**
+         * public HeapNode insert(int key, int value)
+         *
+         * Complexity: O(1)
+         */
+        public HeapNode insert(int key, int value) {
+            HeapNode node = new HeapNode(key);
+            node.setValue(value);
+            insertNode(node);
+            node.owner = this.owner;
+            return node;
+        }
+
+        /**
+         * insertNode(HeapNode node)
+         *
+         * Inserts the given new node and returns it, without setting its owner.
+         * Complexity: O(1)
+         */
+        HeapNode insertNode(HeapNode node) {
+            checkKey(node.key);
+            add(node);
+            found(node);
+            this.size++;
+            return node;
+        }
+
+        /**
+         * public HeapNode findMin()
+         *
+         * Returns a node with the minimum key: one of bucket 0, or else the minimum of the lowest
+         * non-empty bucket, which is kept until a smaller key arrives or it is removed. The last
+         * minimum does not move.
+         *
+         * Complexity: O(n)
+         * amortized: O(log C), C being the range of the keys
+         */
+        public HeapNode findMin() {
+            if (this.size == 0) {
+                return null;
+            }
+            if (this.buckets[0] != null) {
+                return this.buckets[0];
+            }
+            if (this.min == null) {
+                int i = 1;
+                while (this.buckets[i] == null) {
+                    i++;
+                }
+                this.min = this.buckets[i];
+                for (HeapNode node = this.min.next; node != null; node = node.next) {
+                    if (node.key < this.min.key) {
+                        this.min = node;
+                    }
+                }
+            }
+            return this.min;
+        }
+
+        /**
+         * public void deleteMin()
+         *
+         * Removes the minimum and makes its key the last minimum.
+         *
+         * Complexity: O(n)
+         * amortized: O(log C), C being the range of the keys
+         */
+        public void deleteMin() {
+            HeapNode min = findMin();
+            if (min != null) {
+                int bucket = min.rank;
+                remove(min);
+                min.owner = null;
+                this.size--;
+                this.min = null;
+                if (bucket != 0) {
+                    this.last = min.key;
+                    redistribute(bucket);
+                }
+            }
+        }
+
+        /**
+         * public void decreaseKey(HeapNode x, int delta)
+         *
+         * Throws IllegalArgumentException if the new key is smaller than the last minimum.
+         * Complexity: O(1)
+         */
+        public void decreaseKey(HeapNode x, int delta) {
+            x.owner = Owner.check(x.owner, this.owner);
+            decreaseNode(x, delta);
+        }
+
+        /**
+         * decreaseNode(HeapNode x, int delta)
+         *
+         * decreaseKey without the owner check.
+         * Complexity: O(1)
+         */
+        void decreaseNode(HeapNode x, int delta) {
+            int key = x.key - delta;
+            checkKey(key);
+            remove(x);
+            x.key = key;
+            add(x);
+            found(x);
+        }
+
+        /**
+         * public void delete(HeapNode x)
+         *
+         * Complexity: O(1)
+         */
+        public void delete(HeapNode x) {
+            x.owner = Owner.check(x.owner, this.owner);
+            deleteNode(x);
+            x.owner = null;
+        }
+
+        /**
+         * deleteNode(HeapNode x)
+         *
+         * delete without the owner check; the owner of x is left as it is.
+         * Complexity: O(1)
+         */
+        void deleteNode(HeapNode x) {
+            remove(x);
+            this.size--;
+            if (x == this.min) {
+                this.min = null;
+            }
+        }
+
+        /**
+         * public void meld(RadixHeap heap2)
+         *
+         * Moves the nodes of heap2 into this heap and leaves heap2 empty. The last minimum becomes the
+         * lower of both, which rebuckets this heap's nodes if heap2's was lower.
+         *
+         * Complexity: O(heap2.size()), O(n) when this heap is rebucketed
+         */
+        public void meld(RadixHeap heap2) {
+            if (heap2 == this || heap2.size == 0) {
+                return;
+            }
+            if (heap2.last < this.last) {
+                this.last = heap2.last;
+                rebucket(this.buckets);
+            }
+            rebucket(heap2.buckets);
+            this.min = null;
+            heap2.min = null;
+            this.size += heap2.size;
+            this.owner = Owner.union(this.owner, heap2.owner);
+            heap2.owner = new Owner();
+            heap2.size = 0;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * found(HeapNode node)
+         *
+         * Keeps the minimum found by findMin up to date after node got its key.
+         */
+        private void found(HeapNode node) {
+            if (this.min != null && node.key < this.min.key) {
+                this.min = node;
+            }
+        }
+
+        /**
+         * redistribute(int i)
+         *
+         * Moves the nodes of bucket i, which held the minimum that just became the last minimum, to the
+         * buckets of their new differing bit, all of which are lower. The higher buckets keep their nodes:
+         * the last minimum only changed in bits below i.
+         * Complexity: O(bucket size)
+         */
+        private void redistribute(int i) {
+            HeapNode node = this.buckets[i];
+            this.buckets[i] = null;
+            while (node != null) {
+                HeapNode next = node.next;
+                add(node);
+                node = next;
+            }
+        }
+
+        /**
+         * rebucket(HeapNode[] from)
+         *
+         * Empties the given buckets (of this heap or another) into this heap's buckets, relative to
+         * this heap's last minimum.
+         */
+        private void rebucket(HeapNode[] from) {
+            HeapNode list = null;
+            for (int i = 0; i < from.length; i++) {
+                HeapNode node = from[i];
+                from[i] = null;
+                while (node != null) {
+                    HeapNode next = node.next;
+                    node.next = list;
+                    list = node;
+                    node = next;
+                }
+            }
+            while (list != null) {
+                HeapNode next = list.next;
+                add(list);
+                list = next;
+            }
+        }
+
+        private void add(HeapNode node) {
+            int bucket = 32 - Integer.numberOfLeadingZeros(node.key ^ this.last);
+            node.rank = bucket;
+            node.prev = null;
+            node.next = this.buckets[bucket];
+            if (node.next != null) {
+                node.next.prev = node;
+            }
+            this.buckets[bucket] = node;
+        }
+
+        private void remove(HeapNode node) {
+            if (node.prev == null) {
+                this.buckets[node.rank] = node.next;
+            }
+            else {
+                node.prev.next = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            }
+            node.next = null;
+            node.prev = null;
+        }
+
+        private void checkKey(int key) {
+            if (key < this.last) {
+                throw new IllegalArgumentException("key " + key + " is below the last minimum " + this.last);
+            }
+        }
+    }
+
+   /**
+    * public interface HeapMetricsMBean
+    *
+    * The counters of one heap, as exposed through JMX by HeapMetrics.register().
+    */
+    public interface HeapMetricsMBean {
+
+        long getLinks();
+
+        long getCuts();
+
+        long getConsolidations();
+
+        int getMaxCascadeDepth();
+
+        int getMaxRank();
+
+        int getSize();
+
+        int getTrees();
+
+        int getMarked();
+
+        int getPotential();
+    }
+
+   /**
+    * public abstract static class HeapMetrics
+    *
+    * Operation counters of a single heap: links, cuts, the longest cascade of cuts made by one operation,
+    * consolidation passes and the highest root rank after the last consolidation, next to the heap's
+    * size, trees and marked nodes.
+    *
+    * The counters are LongAdders (and a LongAccumulator for the longest cascade), so they can be recorded
+    * by whichever thread operates the heap (the shards of a ConcurrentHeap move between threads), even by
+    * several at once, and read from any other thread (such as a JMX client) without torn or lost counts.
+    * Uncontended, a record is a single CAS and allocates nothing. Every count is also added once per
+    * operation to the LongAdders behind totalLinks() / totalCuts(), which aggregate all heaps on all threads.
+    */
+    public abstract static class HeapMetrics implements HeapMetricsMBean {
+
+        private final LongAdder links = new LongAdder();
+        private final LongAdder cuts = new LongAdder();
+        private final LongAdder consolidations = new LongAdder();
+        private final LongAccumulator maxCascadeDepth = new LongAccumulator(Math::max, 0);
+        private volatile int maxRank;
+
+        /**
+         * getLinks(), getCuts(), getConsolidations(), getMaxCascadeDepth(), getMaxRank(), getPotential()
+         *
+         * Return the counter as described.
+         *
+         * Complexity: O(1)
+         */
+
+        public long getLinks() {
+            return this.links.sum();
+        }
+
+        public long getCuts() {
+            return this.cuts.sum();
+        }
+
+        public long getConsolidations() {
+            return this.consolidations.sum();
+        }
+
+        public int getMaxCascadeDepth() {
+            return (int) this.maxCascadeDepth.get();
+        }
+
+        public int getMaxRank() {
+            return this.maxRank;
+        }
+
+        public int getPotential() {
+            return this.getTrees() + 2 * this.getMarked();
+        }
+
+        /**
+         * public ObjectName register(String name)
+         *
+         * Registers these counters with the platform MBean server under FibonacciHeap:name=name
+         * and returns the registered name.
+         */
+        public ObjectName register(String name) throws JMException {
+            ObjectName objectName = new ObjectName("FibonacciHeap", "name", ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(this, HeapMetricsMBean.class), objectName);
+            return objectName;
+        }
+
+        /**
+         * recordConsolidation(int linked, int maxRank), recordCascade(int cut)
+         *
+         * Count a consolidation pass which made linked links / a decreaseKey which cut cut nodes.
+         *
+         * Complexity: O(1)
+         */
+
+        void recordConsolidation(int linked, int maxRank) {
+            this.links.add(linked);
+            this.consolidations.increment();
+            this.maxRank = maxRank;
+            allLinks.add(linked);
+        }
+
+        void recordCascade(int cut) {
+            this.cuts.add(cut);
+            this.maxCascadeDepth.accumulate(cut);
+            allCuts.add(cut);
+        }
+    }
+
+   /**
+    * public abstract static class SlotHeap
+    *
+    * A Fibonacci Heap over integers whose nodes are records in an indexed store instead of HeapNode objects.
+    * A node is addressed by an int handle (its slot in the store), and the slots of deleted nodes are reused
+    * through a free list. A handle is valid only until its node is deleted from the heap.
+    *
+    * Subclasses provide the store: ArrayHeap keeps it in parallel primitive arrays, MappedHeap in a
+    * memory-mapped file.
+    */
+    public abstract static class SlotHeap {
+
+        public static final int NONE = -1;
+
+        protected int slots;
+        protected int freeHead;
+        protected int size;
+        protected int trees;
+        protected int marked;
+        protected int first;
+        protected int min;
+        private int[] rankTable;
+        private final HeapMetrics metrics;
+
+        /**
+         * protected SlotHeap()
+         *
+         * Initialize new empty heap.
+         *
+         * Complexity: O(1)
+         */
+        protected SlotHeap() {
+            this.rankTable = new int[0];
+            this.metrics = new HeapMetrics() {
+                public int getSize() {
+                    return SlotHeap.this.size;
+                }
+
+                public int getTrees() {
+                    return SlotHeap.this.trees;
+                }
+
+                public int getMarked() {
+                    return SlotHeap.this.marked;
+                }
+            };
+            clear();
+        }
+
+        /**
+         * public boolean isEmpty()
+         *
+         * Returns true if and only if the heap is empty.
+         *
+         * Complexity: O(1)
+         */
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * public int insert(int key)
+         *
+         * Inserts the given key into the heap and returns the handle of its node.
+         *
+         * Complexity: O(1) amortized (the store may have to grow)
+         */
+        public int insert(int key) {
+            int node = allocate(key);
+            if (this.first == NONE) {
+                this.first = node;
+                this.min = node;
+            }
+            else {
+                splice(getPrev(this.first), node);
+                this.first = node;
+                if (key < getKey(this.min)) {
+                    this.min = node;
+                }
+            }
+            this.size++;
+            this.trees++;
+            return node;
+        }
+
+        /**
+         * public int[] insertAll(int[] keys, boolean consolidate)
+         *
+         * Inserts all the given keys and returns their handles in the same order. The new nodes are
+         * chained into one list in a single pass and spliced into the root list once. If consolidate
+         * is true, the root list is consolidated right away instead of by the next deleteMin.
+         *
+         * Complexity: O(keys.length + #trees)
+         */
+        public int[] insertAll(int[] keys, boolean consolidate) {
+            int[] handles = new int[keys.length];
+            if (keys.length == 0) {
+                return handles;
+            }
+            ensureCapacity(this.slots + keys.length);
+            int head = allocate(keys[0]);
+            int newMin = head;
+            handles[0] = head;
+            for (int i = 1; i < keys.length; i++) {
+                int node = allocate(keys[i]);
+                int last = getPrev(head);
+                setNext(last, node);
+                setPrev(node, last);
+                setNext(node, head);
+                setPrev(head, node);
+                if (keys[i] < getKey(newMin)) {
+                    newMin = node;
+                }
+                handles[i] = node;
+            }
+
+            if (this.first == NONE) {
+                this.min = newMin;
+            }
+            else {
+                splice(getPrev(this.first), head);
+                if (getKey(newMin) < getKey(this.min)) {
+                    this.min = newMin;
+                }
+            }
+            this.first = head;
+            this.size += keys.length;
+            this.trees += keys.length;
+
+            if (consolidate) {
+                consolidate();
+            }
+            return handles;
+        }
+
+        /**
+         * public int findMin()
+         *
+         * Returns the handle of the node whose key is minimal, or NONE if the heap is empty.
+         *
+         * Complexity: O(1)
+         */
+        public int findMin() {
+            return this.min;
+        }
+
+        /**
+         * public void deleteMin()
+         *
+         * Deletes the node containing the minimum key.
+         *
+         * Complexity: O(n)
+         * amortized: O(log n)
+         */
+        public void deleteMin() {
+            if (this.isEmpty()) {
+                return;
+            }
+            removeRoot(this.min);
+            if (this.first == NONE) {
+                this.min = NONE;
+                return;
+            }
+            consolidate();
+        }
+
+        /**
+         * public int meld(SlotHeap heap2)
+         *
+         * Melds heap2 with the current heap. The nodes of heap2 are copied into this heap's store
+         * and heap2 is left empty. A handle h of heap2 becomes the handle h + offset of this heap,
+         * where offset is the returned value.
+         *
+         * Complexity: O(heap2's number of slots)
+         */
+        public int meld(SlotHeap heap2) {
+            int offset = this.slots;
+            if (heap2 == this || heap2.slots == 0) {
+                return offset;
+            }
+            ensureCapacity(this.slots + heap2.slots);
+            for (int i = 0; i < heap2.slots; i++) {
+                int j = offset + i;
+                setKey(j, heap2.getKey(i));
+                setRank(j, heap2.getRank(i));
+                setMarked(j, heap2.isMarked(i));
+                setParent(j, shift(heap2.getParent(i), offset));
+                setChild(j, shift(heap2.getChild(i), offset));
+                setNext(j, shift(heap2.getNext(i), offset));
+                setPrev(j, shift(heap2.getPrev(i), offset));
+            }
+            this.slots += heap2.slots;
+
+            // hand heap2's free slots over to this heap's free list
+            int free = heap2.freeHead;
+            while (free != NONE) {
+                int next = heap2.getNext(free);
+                setNext(free + offset, this.freeHead);
+                this.freeHead = free + offset;
+                free = next;
+            }
+
+            if (!heap2.isEmpty()) {
+                int rightFirst = heap2.first + offset;
+                int rightMin = heap2.min + offset;
+                if (this.isEmpty()) {
+                    this.first = rightFirst;
+                    this.min = rightMin;
+                }
+                else {
+                    splice(getPrev(this.first), rightFirst);
+                    if (getKey(rightMin) < getKey(this.min)) {
+                        this.min = rightMin;
+                    }
+                }
+                this.size += heap2.size;
+                this.trees += heap2.trees;
+                this.marked += heap2.marked;
+            }
+            heap2.clear();
+            return offset;
+        }
+
+        /**
+         * public int size()
+         *
+         * Returns the number of elements in the heap.
+         * Complexity: O(1)
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * public int[] countersRep()
+         *
+         * Return an array of counters. The i-th entry contains the number of trees of order i in the heap.
+         * An empty heap returns an empty array.
+         *
+         * Complexity: O(n)
+         */
+        public int[] countersRep() {
+            if (this.isEmpty()) {
+                return new int[] {};
+            }
+            int maxRank = 0;
+            int node = this.first;
+            do {
+                maxRank = Math.max(maxRank, getRank(node));
+                node = getNext(node);
+            } while (node != this.first);
+
+            int[] arr = new int[maxRank + 1];
+            do {
+                arr[getRank(node)]++;
+                node = getNext(node);
+            } while (node != this.first);
+            return arr;
+        }
+
+        /**
+         * public void delete(int x)
+         *
+         * Deletes the node x from the heap: x is cut to the root list and replaced there by its children.
+         * Consolidation is left to the next deleteMin, unless x is the minimum.
+         * Throws IllegalArgumentException if x is not a live slot of this heap.
+         *
+         * Complexity: O(log(n))
+         * amortized: O(deg(x))
+         */
+        public void delete(int x) {
+            checkHandle(x);
+            if (x == this.min) {
+                deleteMin();
+                return;
+            }
+            if (getParent(x) != NONE) {
+                this.metrics.recordCascade(cut(x));
+            }
+            removeRoot(x);
+        }
+
+        /**
+         * public void decreaseKey(int x, int delta)
+         *
+         * Decreases the key of the node x by a non-negative value delta, applying cascading cuts if needed.
+         *
+         * Complexity: O(log(n))
+         * amortized: O(1)
+         */
+        public void decreaseKey(int x, int delta) {
+            checkHandle(x);
+            setKey(x, getKey(x) - delta);
+            int parent = getParent(x);
+            if (parent != NONE && getKey(x) < getKey(parent)) {
+                this.metrics.recordCascade(cut(x));
+            }
+            if (getKey(x) < getKey(this.min)) {
+                this.min = x;
+            }
+        }
+
+        /**
+         * checkHandle(int x)
+         *
+         * Throws IllegalArgumentException if x is not a slot of this heap or its slot is free. A handle
+         * whose slot was freed and then reused by a later insert cannot be told apart.
+         *
+         * Complexity: O(1)
+         */
+        private void checkHandle(int x) {
+            if (x < 0 || x >= this.slots || getPrev(x) == NONE) {
+                throw new IllegalArgumentException("no node at handle " + x);
+            }
+        }
+
+        /**
+         * public int potential()
+         *
+         * Returns the current potential of the heap: #trees + 2*#marked
+         *
+         * Complexity: O(1)
+         */
+        public int potential() {
+            return this.trees + 2 * this.marked;
+        }
+
+        /**
+         * public HeapMetrics getMetrics()
+         *
+         * Returns the operation counters of this heap.
+         *
+         * Complexity: O(1)
+         */
+        public HeapMetrics getMetrics() {
+            return this.metrics;
+        }
+
+        /**
+         * getTrees(), getMarked(), getFirst()
+         *
+         * Return the field as described.
+         *
+         * Complexity: O(1)
+         */
+
+        public int getTrees() {
+            return this.trees;
+        }
+
+        public int getMarked() {
+            return this.marked;
+        }
+
+        public int getFirst() {
+            return this.first;
+        }
+
+        /**
+         * getKey(), getRank(), isMarked(), getParent(), getChild(), getNext(), getPrev()
+         *
+         * Return the field of the node x as described, NONE for a missing link.
+         *
+         * Complexity: O(1)
+         */
+
+        public abstract int getKey(int x);
+
+        public abstract int getRank(int x);
+
+        public abstract boolean isMarked(int x);
+
+        public abstract int getParent(int x);
+
+        public abstract int getChild(int x);
+
+        public abstract int getNext(int x);
+
+        public abstract int getPrev(int x);
+
+        /**
+         * setKey(), setRank(), setMarked(), setParent(), setChild(), setNext(), setPrev()
+         *
+         * Set the field of the node x as described.
+         *
+         * Complexity: O(1)
+         */
+
+        protected abstract void setKey(int x, int key);
+
+        protected abstract void setRank(int x, int rank);
+
+        protected abstract void setMarked(int x, boolean mark);
+
+        protected abstract void setParent(int x, int node);
+
+        protected abstract void setChild(int x, int node);
+
+        protected abstract void setNext(int x, int node);
+
+        protected abstract void setPrev(int x, int node);
+
+        /**
+         * protected abstract void ensureCapacity(int capacity)
+         *
+         * Grows the store so that slots 0 .. capacity-1 can be used.
+         */
+        protected abstract void ensureCapacity(int capacity);
+
+        /**
+         * consolidate()
+         *
+         * Links the trees of the root list until no two roots share a rank, then rebuilds
+         * the root list and the minimum from the rank table.
+         *
+         * Complexity: O(#trees + log n)
+         */
+        private void consolidate() {
+            int[] table = rankTable(this.size);
+            int node = this.first;
+            int linked = 0;
+            for (int count = this.trees; count > 0; count--) {
+                int next = getNext(node);
+                int x = node;
+                setNext(x, x);
+                setPrev(x, x);
+                int rank = getRank(x);
+                while (table[rank] != NONE) {
+                    int y = table[rank];
+                    table[rank] = NONE;
+                    if (getKey(y) < getKey(x)) {
+                        int tmp = x;
+                        x = y;
+                        y = tmp;
+                    }
+                    link(x, y);
+                    linked++;
+                    rank++;
+                }
+                table[rank] = x;
+                node = next;
+            }
+
+            this.first = NONE;
+            this.min = NONE;
+            this.trees = 0;
+            int maxRank = 0;
+            for (int i = 0; i < table.length; i++) {
+                int x = table[i];
+                if (x == NONE) {
+                    continue;
+                }
+                table[i] = NONE;
+                maxRank = i;
+                if (isMarked(x)) {
+                    setMarked(x, false);
+                    this.marked--;
+                }
+                if (this.first == NONE) {
+                    this.first = x;
+                    this.min = x;
+                }
+                else {
+                    splice(getPrev(this.first), x);
+                    if (getKey(x) < getKey(this.min)) {
+                        this.min = x;
+                    }
+                }
+                this.trees++;
+            }
+            this.metrics.recordConsolidation(linked, maxRank);
+        }
+
+        /**
+         * link(int parent, int child)
+         *
+         * Hangs the root child under the root parent.
+         * Complexity: O(1)
+         */
+        private void link(int parent, int child) {
+            setParent(child, parent);
+            int savedChild = getChild(parent);
+            if (savedChild == NONE) {
+                setChild(parent, child);
+            }
+            else {
+                splice(getPrev(savedChild), child);
+            }
+            setRank(parent, getRank(parent) + 1);
+        }
+
+        /**
+         * cut(int x)
+         *
+         * Cuts node x from its parent node and adds it as a new tree.
+         * Continues with cascading cuts as long as the parent is marked.
+         * Returns the number of cut nodes.
+         *
+         * Complexity: O(1) per cut node
+         */
+        private int cut(int x) {
+            int cuts = 0;
+            while (true) {
+                int parent = getParent(x);
+                if (getNext(x) == x) {
+                    setChild(parent, NONE);
+                }
+                else {
+                    setNext(getPrev(x), getNext(x));
+                    setPrev(getNext(x), getPrev(x));
+                    if (getChild(parent) == x) {
+                        setChild(parent, getNext(x));
+                    }
+                }
+                setRank(parent, getRank(parent) - 1);
+                setParent(x, NONE);
+                setNext(x, x);
+                setPrev(x, x);
+                splice(getPrev(this.first), x);
+                this.first = x;
+                this.trees++;
+                if (isMarked(x)) {
+                    setMarked(x, false);
+                    this.marked--;
+                }
+                cuts++;
+
+                if (getParent(parent) == NONE) {     // parent is a root
+                    return cuts;
+                }
+                if (!isMarked(parent)) {
+                    setMarked(parent, true);
+                    this.marked++;
+                    return cuts;
+                }
+                x = parent;
+            }
+        }
+
+        /**
+         * removeRoot(int z)
+         *
+         * Removes the root z from the heap and frees its slot, moving its children (unmarked) to the
+         * root list. The minimum is not updated.
+         *
+         * Complexity: O(deg(z))
+         */
+        private void removeRoot(int z) {
+            int child = getChild(z);
+            if (child != NONE) {
+                int node = child;
+                do {
+                    setParent(node, NONE);
+                    if (isMarked(node)) {
+                        setMarked(node, false);
+                        this.marked--;
+                    }
+                    node = getNext(node);
+                } while (node != child);
+                splice(z, child);
+                this.trees += getRank(z);
+            }
+
+            if (getNext(z) == z) {
+                this.first = NONE;
+            }
+            else {
+                setNext(getPrev(z), getNext(z));
+                setPrev(getNext(z), getPrev(z));
+                if (this.first == z) {
+                    this.first = getNext(z);
+                }
+            }
+            this.trees--;
+            this.size--;
+            release(z);
+        }
+
+        /**
+         * splice(int a, int b)
+         *
+         * Inserts the circular list starting at b right after node a.
+         * Complexity: O(1)
+         */
+        private void splice(int a, int b) {
+            int aNext = getNext(a);
+            int bLast = getPrev(b);
+            setNext(a, b);
+            setPrev(b, a);
+            setNext(bLast, aNext);
+            setPrev(aNext, bLast);
+        }
+
+        /**
+         * allocate(int key), release(int x)
+         *
+         * Take a slot from the free list (or the end of the store) / return a slot to the free list.
+         * Complexity: O(1) amortized
+         */
+        private int allocate(int key) {
+            int node;
+            if (this.freeHead != NONE) {
+                node = this.freeHead;
+                this.freeHead = getNext(node);
+            }
+            else {
+                ensureCapacity(this.slots + 1);
+                node = this.slots++;
+            }
+            setKey(node, key);
+            setRank(node, 0);
+            setMarked(node, false);
+            setParent(node, NONE);
+            setChild(node, NONE);
+            setNext(node, node);
+            setPrev(node, node);
+            return node;
+        }
+
+        private void release(int x) {
+            setChild(x, NONE);
+            setParent(x, NONE);
+            setPrev(x, NONE);
+            setNext(x, this.freeHead);
+            this.freeHead = x;
+        }
+
+        /**
+         * rankTable(int n)
+         *
+         * Returns the heap's rank table, all entries NONE, large enough for any rank in a heap of n nodes.
+         * Complexity: O(1) amortized
+         */
+        private int[] rankTable(int n) {
+            int length = rankBound(n) + 1;
+            if (this.rankTable.length < length) {
+                this.rankTable = new int[length];
+                Arrays.fill(this.rankTable, NONE);
+            }
+            return this.rankTable;
+        }
+
+        protected void clear() {
+            this.slots = 0;
+            this.freeHead = NONE;
+            this.size = 0;
+            this.trees = 0;
+            this.marked = 0;
+            this.first = NONE;
+            this.min = NONE;
+        }
+
+        private static int shift(int handle, int offset) {
+            return handle == NONE ? NONE : handle + offset;
+        }
+    }
+
+   /**
+    * public static class ArrayHeap
+    *
+    * A SlotHeap which keeps key, rank, mark and link data in parallel primitive arrays.
+    */
+    public static class ArrayHeap extends SlotHeap {
+
+        private int[] keys;
+        private int[] ranks;
+        private boolean[] marks;
+        private int[] parents;
+        private int[] childs;
+        private int[] nexts;
+        private int[] prevs;
+
+        /**
+         * public ArrayHeap()
+         *
+         * Initialize new heap with a small default capacity.
+         *
+         * Complexity: O(1)
+         */
+        public ArrayHeap() {
+            this(16);
+        }
+
+        /**
+         * public ArrayHeap(int capacity)
+         *
+         * Initialize new heap with room for capacity nodes before the arrays have to grow.
+         *
+         * Complexity: O(capacity)
+         */
+        public ArrayHeap(int capacity) {
+            capacity = Math.max(capacity, 1);
+            this.keys = new int[capacity];
+            this.ranks = new int[capacity];
+            this.marks = new boolean[capacity];
+            this.parents = new int[capacity];
+            this.childs = new int[capacity];
+            this.nexts = new int[capacity];
+            this.prevs = new int[capacity];
+        }
+
+        public int getKey(int x) {
+            return this.keys[x];
+        }
+
+        public int getRank(int x) {
+            return this.ranks[x];
+        }
+
+        public boolean isMarked(int x) {
+            return this.marks[x];
+        }
+
+        public int getParent(int x) {
+            return this.parents[x];
+        }
+
+        public int getChild(int x) {
+            return this.childs[x];
+        }
+
+        public int getNext(int x) {
+            return this.nexts[x];
+        }
+
+        public int getPrev(int x) {
+            return this.prevs[x];
+        }
+
+        protected void setKey(int x, int key) {
+            this.keys[x] = key;
+        }
+
+        protected void setRank(int x, int rank) {
+            this.ranks[x] = rank;
+        }
+
+        protected void setMarked(int x, boolean mark) {
+            this.marks[x] = mark;
+        }
+
+        protected void setParent(int x, int node) {
+            this.parents[x] = node;
+        }
+
+        protected void setChild(int x, int node) {
+            this.childs[x] = node;
+        }
+
+        protected void setNext(int x, int node) {
+            this.nexts[x] = node;
+        }
+
+        protected void setPrev(int x, int node) {
+            this.prevs[x] = node;
+        }
+
+        protected void ensureCapacity(int capacity) {
+            if (capacity <= this.keys.length) {
+                return;
+            }
+            int length = Math.max(capacity, this.keys.length * 2);
+            this.keys = Arrays.copyOf(this.keys, length);
+            this.ranks = Arrays.copyOf(this.ranks, length);
+            this.marks = Arrays.copyOf(this.marks, length);
+            this.parents = Arrays.copyOf(this.parents, length);
+            this.childs = Arrays.copyOf(this.childs, length);
+            this.nexts = Arrays.copyOf(this.nexts, length);
+            this.prevs = Arrays.copyOf(this.prevs, length);
+        }
+    }
+
+   /**
+    * public static class MappedHeap
+    *
+    * A SlotHeap whose node records live in a memory-mapped file, so the heap can grow past the Java heap
+    * and be reopened after a restart. The file holds a small header followed by fixed-size records
+    * (key, rank, mark, parent, child, next, prev), mapped in chunks of CHUNK_RECORDS records.
+    *
+    * The header is written by sync() and close(); the file reflects the heap as of the last of these calls.
+    */
+    public static class MappedHeap extends SlotHeap implements Closeable {
+
+        private static final int MAGIC = 0x46494248;     // "FIBH"
+        private static final int VERSION = 1;
+        private static final int HEADER_BYTES = 64;
+        private static final int RECORD_SHIFT = 5;       // 32 bytes per record
+        private static final int CHUNK_SHIFT = 20;
+        private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+
+        private static final int KEY = 0;
+        private static final int RANK = 4;
+        private static final int MARK = 8;
+        private static final int PARENT = 12;
+        private static final int CHILD = 16;
+        private static final int NEXT = 20;
+        private static final int PREV = 24;
+
+        private final FileChannel channel;
+        private final MappedByteBuffer header;
+        private MappedByteBuffer[] chunks;
+
+        /**
+         * public MappedHeap(Path file)
+         *
+         * Opens the heap stored in file, or creates a new empty heap there if the file is empty or missing.
+         *
+         * Complexity: O(number of chunks)
+         */
+        public MappedHeap(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            boolean existing = this.channel.size() >= HEADER_BYTES;
+            this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            this.header.order(ByteOrder.LITTLE_ENDIAN);
+            this.chunks = new MappedByteBuffer[0];
+            if (existing) {
+                if (this.header.getInt(0) != MAGIC || this.header.getInt(4) != VERSION) {
+                    this.channel.close();
+                    throw new IOException("not a heap file: " + file);
+                }
+                this.slots = this.header.getInt(8);
+                this.freeHead = this.header.getInt(12);
+                this.size = this.header.getInt(16);
+                this.trees = this.header.getInt(20);
+                this.marked = this.header.getInt(24);
+                this.first = this.header.getInt(28);
+                this.min = this.header.getInt(32);
+                ensureCapacity(this.slots);
+            }
+            else {
+                writeHeader();
+            }
+        }
+
+        /**
+         * public void sync()
+         *
+         * Writes the header and forces all changes to the storage device.
+         *
+         * Complexity: O(size of the file)
+         */
+        public void sync() {
+            writeHeader();
+            this.header.force();
+            for (MappedByteBuffer chunk : this.chunks) {
+                chunk.force();
+            }
+        }
+
+        /**
+         * public void close()
+         *
+         * Syncs the heap and closes the file. The heap must not be used afterwards.
+         */
+        public void close() throws IOException {
+            sync();
+            this.channel.close();
+        }
+
+        public int getKey(int x) {
+            return chunk(x).getInt(offset(x) + KEY);
+        }
+
+        public int getRank(int x) {
+            return chunk(x).getInt(offset(x) + RANK);
+        }
+
+        public boolean isMarked(int x) {
+            return chunk(x).getInt(offset(x) + MARK) != 0;
+        }
+
+        public int getParent(int x) {
+            return chunk(x).getInt(offset(x) + PARENT);
+        }
+
+        public int getChild(int x) {
+            return chunk(x).getInt(offset(x) + CHILD);
+        }
+
+        public int getNext(int x) {
+            return chunk(x).getInt(offset(x) + NEXT);
+        }
+
+        public int getPrev(int x) {
+            return chunk(x).getInt(offset(x) + PREV);
+        }
+
+        protected void setKey(int x, int key) {
+            chunk(x).putInt(offset(x) + KEY, key);
+        }
+
+        protected void setRank(int x, int rank) {
+            chunk(x).putInt(offset(x) + RANK, rank);
+        }
+
+        protected void setMarked(int x, boolean mark) {
+            chunk(x).putInt(offset(x) + MARK, mark ? 1 : 0);
+        }
+
+        protected void setParent(int x, int node) {
+            chunk(x).putInt(offset(x) + PARENT, node);
+        }
+
+        protected void setChild(int x, int node) {
+            chunk(x).putInt(offset(x) + CHILD, node);
+        }
+
+        protected void setNext(int x, int node) {
+            chunk(x).putInt(offset(x) + NEXT, node);
+        }
+
+        protected void setPrev(int x, int node) {
+            chunk(x).putInt(offset(x) + PREV, node);
+        }
+
+        protected void ensureCapacity(int capacity) {
+            int needed = (int) (((long) capacity + CHUNK_MASK) >>> CHUNK_SHIFT);
+            if (needed <= this.chunks.length) {
+                return;
+            }
+            MappedByteBuffer[] grown = Arrays.copyOf(this.chunks, needed);
+            try {
+                for (int i = this.chunks.length; i < needed; i++) {
+                    long position = HEADER_BYTES + ((long) i << (CHUNK_SHIFT + RECORD_SHIFT));
+                    grown[i] = this.channel.map(FileChannel.MapMode.READ_WRITE, position,
+                            (long) CHUNK_RECORDS << RECORD_SHIFT);
+                    grown[i].order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.chunks = grown;
+        }
+
+        private MappedByteBuffer chunk(int x) {
+            return this.chunks[x >>> CHUNK_SHIFT];
+        }
+
+        private static int offset(int x) {
+            return (x & CHUNK_MASK) << RECORD_SHIFT;
+        }
+
+        private void writeHeader() {
+            this.header.putInt(0, MAGIC);
+            this.header.putInt(4, VERSION);
+            this.header.putInt(8, this.slots);
+            this.header.putInt(12, this.freeHead);
+            this.header.putInt(16, this.size);
+            this.header.putInt(20, this.trees);
+            this.header.putInt(24, this.marked);
+            this.header.putInt(28, this.first);
+            this.header.putInt(32, this.min);
+        }
+    }
+
+   /**
+    * public static class JournaledHeap
+    *
+    * A FibonacciHeap whose changes are appended to a write-ahead log, so it can be recovered after a
+    * restart. The directory holds the log and the latest checkpoint (a snapshot written by save).
+    * Recovery loads the checkpoint named in the log header and replays the log records after it.
+    *
+    * Every node gets an id, stored in its value payload (which is therefore reserved), and the log
+    * refers to nodes by id. An id stays the same for as long as its node is in the heap, across
+    * checkpoints and recovery. The ids of removed nodes are reused by later inserts, so the id table
+    * stays proportional to the largest size the heap had, and ids never run out.
+    *
+    * The log is a memory-mapped file of fixed-size records (op, id, argument, checksum) mapped in windows
+    * of LOG_WINDOW bytes. The 16-byte records are aligned, so none straddles a disk sector. Appending a
+    * record is a memory write; the records are forced to the device every groupCommit records (group
+    * commit) and by commit(), so a crash loses at most the operations since the last commit. After
+    * checkpointEvery records a new checkpoint is taken and the log starts over.
+    *
+    * The checksum is a CRC32C of the record's fields and position. Recovery ignores a bad last record
+    * (a write torn by the crash) and fails with an IOException on any other bad record, or on a record
+    * that does not fit the heap.
+    */
+    public static class JournaledHeap implements Closeable {
+
+        private static final int MAGIC = 0x4649424A;     // "FIBJ"
+        private static final int VERSION = 2;
+        private static final int HEADER_BYTES = 16;      // magic, version, generation, next id
+        private static final int RECORD_BYTES = 16;      // op, id, argument, checksum
+        private static final int LOG_WINDOW = RECORD_BYTES << 20;
+
+        private static final int INSERT = 1;             // id, key
+        private static final int DECREASE_KEY = 2;       // id, delta
+        private static final int DELETE = 3;             // id
+
+        private final Path directory;
+        private final int groupCommit;
+        private final int checkpointEvery;
+        private FibonacciHeap heap;
+        private HeapNode[] nodes;
+        private int nextId;                              // the ids below are in use or free
+        private int[] freeIds = new int[16];
+        private int freeCount;
+        private int generation;
+        private FileChannel log;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long records;
+        private int uncommitted;
+        private final CRC32C crc = new CRC32C();
+        private final ByteBuffer fields = ByteBuffer.allocate(20);
+
+        /**
+         * public JournaledHeap(Path directory, int groupCommit, int checkpointEvery)
+         *
+         * Opens the journaled heap stored in directory, recovering it from its checkpoint and log, or
+         * creates a new empty one there.
+         *
+         * Complexity: O(checkpoint size + log length)
+         */
+        public JournaledHeap(Path directory, int groupCommit, int checkpointEvery) throws IOException {
+            if (groupCommit < 1 || checkpointEvery < 1) {
+                throw new IllegalArgumentException("groupCommit and checkpointEvery must be positive");
+            }
+            this.directory = directory;
+            this.groupCommit = groupCommit;
+            this.checkpointEvery = checkpointEvery;
+            this.heap = new FibonacciHeap();
+            this.nodes = new HeapNode[16];
+            Path file = directory.resolve("heap.log");
+            if (!Files.exists(file)) {
+                createLog(0);
+            }
+            this.log = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        }
+
+        public boolean isEmpty() {
+            return this.heap.isEmpty();
+        }
+
+        public int size() {
+            return this.heap.size();
+        }
+
+        public HeapNode findMin() {
+            return this.heap.findMin();
+        }
+
+        /**
+         * public HeapNode getNode(int id)
+         *
+         * Returns the node with the given id, or null if it was removed (or never existed). The id of a
+         * removed node may be given to a later insert.
+         *
+         * Complexity: O(1)
+         */
+        public HeapNode getNode(int id) {
+            return id >= 0 && id < this.nodes.length ? this.nodes[id] : null;
+        }
+
+        /**
+         * public HeapNode insert(int key)
+         *
+         * Inserts key with the next id (the node's value) and logs it.
+         *
+         * Complexity: O(1) amortized
+         */
+        public HeapNode insert(int key) {
+            HeapNode node = insertWithId(issueId(), key);
+            append(INSERT, node.getValue(), key);
+            checkpointIfDue();
+            return node;
+        }
+
+        /**
+         * public void deleteMin()
+         *
+         * Deletes the minimum and logs it as the deletion of its id.
+         *
+         * Complexity: O(n)
+         * amortized: O(log n)
+         */
+        public void deleteMin() {
+            HeapNode min = this.heap.findMin();
+            if (min == null) {
+                return;
+            }
+            this.heap.deleteMin();
+            release(min.getValue());
+            append(DELETE, min.getValue(), 0);
+            checkpointIfDue();
+        }
+
+        /**
+         * public void decreaseKey(HeapNode x, int delta)
+         *
+         * Throws IllegalArgumentException if delta is negative, before anything is logged.
+         *
+         * Complexity: O(log(n))
+         * amortized: O(1)
+         */
+        public void decreaseKey(HeapNode x, int delta) {
+            if (delta < 0) {
+                throw new IllegalArgumentException("delta " + delta + " is negative");
+            }
+            this.heap.decreaseKey(x, delta);
+            append(DECREASE_KEY, x.getValue(), delta);
+            checkpointIfDue();
+        }
+
+        /**
+         * public void delete(HeapNode x)
+         *
+         * Complexity: O(log(n))
+         * amortized: O(deg(x))
+         */
+        public void delete(HeapNode x) {
+            this.heap.delete(x);
+            release(x.getValue());
+            append(DELETE, x.getValue(), 0);
+            checkpointIfDue();
+        }
+
+        /**
+         * public void meld(FibonacciHeap heap2)
+         *
+         * Melds heap2 into this heap and leaves heap2 empty. The nodes of heap2 get new ids (replacing
+         * their values) and are logged as inserts, since the log cannot refer to heap2. A heap2 with
+         * nodes in its id index is rejected with IllegalArgumentException.
+         *
+         * Complexity: O(heap2.size())
+         */
+        public void meld(FibonacciHeap heap2) {
+            if (heap2 == this.heap) {
+                return;
+            }
+            if (heap2.ids != null && heap2.ids.size() > 0) {
+                throw new IllegalArgumentException("cannot meld a heap with ids into a journaled heap");
+            }
+            HeapNode[] melded = heap2.preorder();
+            for (HeapNode node : melded) {
+                int id = issueId();
+                node.setValue(id);
+                index(id, node);
+            }
+            this.heap.meld(heap2);
+            for (HeapNode node : melded) {
+                append(INSERT, node.getValue(), node.getKey());
+            }
+            checkpointIfDue();
+        }
+
+        /**
+         * public void commit()
+         *
+         * Forces the log records written so far to the storage device.
+         *
+         * Complexity: O(size of the current window)
+         */
+        public void commit() {
+            if (this.uncommitted > 0) {
+                this.window.force();
+                this.uncommitted = 0;
+            }
+        }
+
+        /**
+         * public void checkpoint()
+         *
+         * Saves the heap as the checkpoint of the next generation, then replaces the log by an empty
+         * log of that generation. A crash in between leaves the previous checkpoint and log in place.
+         *
+         * Complexity: O(n)
+         */
+        public void checkpoint() throws IOException {
+            commit();
+            int next = this.generation + 1;
+            this.heap.save(checkpoint(next));
+            this.log.close();
+            createLog(next);
+            Files.deleteIfExists(checkpoint(this.generation));
+            this.log = FileChannel.open(this.directory.resolve("heap.log"), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.generation = next;
+            this.records = 0;
+            map(0);
+        }
+
+        /**
+         * public void close()
+         *
+         * Commits the log and closes it. The heap must not be used afterwards.
+         */
+        public void close() throws IOException {
+            commit();
+            this.log.close();
+        }
+
+        /**
+         * recover()
+         *
+         * Loads the checkpoint of the log's generation, if any, and replays the log records up to the
+         * first empty record. A last record with a bad checksum is a torn write and is cleared. The
+         * ids below nextId that no node holds afterwards are free.
+         */
+        private void recover() throws IOException {
+            ByteBuffer header = this.log.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("not a heap log: " + this.directory.resolve("heap.log"));
+            }
+            this.generation = header.getInt(8);
+            this.nextId = header.getInt(12);
+            if (this.generation < 0 || this.nextId < 0) {
+                throw corrupt("bad header");
+            }
+            if (this.generation > 0) {
+                for (HeapNode node : this.heap.load(checkpoint(this.generation))) {
+                    int id = node.getValue();
+                    if (id < 0 || id >= this.nextId || getNode(id) != null) {
+                        throw new IOException("corrupt heap checkpoint " + checkpoint(this.generation) + ": id " + id);
+                    }
+                    index(id, node);
+                }
+            }
+
+            map(0);
+            while (true) {
+                int offset = offset(this.records);
+                if (offset == this.window.capacity()) {
+                    map(this.records);
+                    offset = 0;
+                }
+                int op = this.window.getInt(offset);
+                if (op == 0) {
+                    break;
+                }
+                int id = this.window.getInt(offset + 4);
+                int argument = this.window.getInt(offset + 8);
+                if (this.window.getInt(offset + 12) != checksum(this.records, op, id, argument)) {
+                    if (!isEmpty(this.records + 1)) {
+                        throw corrupt("bad checksum");
+                    }
+                    this.window.putLong(offset + 8, 0);
+                    this.window.putLong(offset, 0);
+                    this.window.force();
+                    break;
+                }
+                replay(op, id, argument);
+                this.records++;
+            }
+            for (int id = this.nextId - 1; id >= 0; id--) {
+                if (getNode(id) == null) {
+                    release(id);
+                }
+            }
+        }
+
+        /**
+         * replay(int op, int id, int argument)
+         *
+         * Applies one log record to the heap, after checking that it fits the heap: an insert must use
+         * a free id or the next one, and the other records must name a live node.
+         */
+        private void replay(int op, int id, int argument) throws IOException {
+            switch (op) {
+                case INSERT:
+                    if (id < 0 || id > this.nextId || id == Integer.MAX_VALUE || getNode(id) != null) {
+                        throw corrupt("insert of id " + id + ", which is in use or beyond the next id " + this.nextId);
+                    }
+                    insertWithId(id, argument);
+                    if (id == this.nextId) {
+                        this.nextId++;
+                    }
+                    break;
+                case DECREASE_KEY:
+                    if (argument < 0) {
+                        throw corrupt("negative delta " + argument);
+                    }
+                    this.heap.decreaseKey(liveNode(id), argument);
+                    break;
+                case DELETE:
+                    this.heap.delete(liveNode(id));
+                    this.nodes[id] = null;
+                    break;
+                default:
+                    throw corrupt("op " + op);
+            }
+        }
+
+        private HeapNode liveNode(int id) throws IOException {
+            HeapNode node = getNode(id);
+            if (node == null) {
+                throw corrupt("id " + id + " is not in the heap");
+            }
+            return node;
+        }
+
+        private IOException corrupt(String message) {
+            return new IOException("corrupt heap log " + this.directory.resolve("heap.log") + ", record "
+                    + this.records + ": " + message);
+        }
+
+        /**
+         * isEmpty(long record)
+         *
+         * Returns true if the given record of the log is all zeros (or lies past the end of the file).
+         */
+        private boolean isEmpty(long record) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+            long position = HEADER_BYTES + record * RECORD_BYTES;
+            while (buffer.hasRemaining()) {
+                if (this.log.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private HeapNode insertWithId(int id, int key) {
+            HeapNode node = this.heap.insert(key, id);
+            index(id, node);
+            return node;
+        }
+
+        /**
+         * issueId(), release(int id)
+         *
+         * Return a free id for a new node, the most recently freed one if any / free the id of a
+         * removed node. Since ids are reused, nextId never exceeds the largest size of the heap.
+         */
+        private int issueId() {
+            if (this.freeCount > 0) {
+                return this.freeIds[--this.freeCount];
+            }
+            if (this.nextId == Integer.MAX_VALUE) {
+                throw new IllegalStateException("more than " + Integer.MAX_VALUE + " nodes");
+            }
+            return this.nextId++;
+        }
+
+        private void release(int id) {
+            this.nodes[id] = null;
+            if (this.freeCount == this.freeIds.length) {
+                this.freeIds = Arrays.copyOf(this.freeIds, 2 * this.freeCount);
+            }
+            this.freeIds[this.freeCount++] = id;
+        }
+
+        private void index(int id, HeapNode node) {
+            if (id >= this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, Math.max(id + 1, 2 * this.nodes.length));
+            }
+            this.nodes[id] = node;
+        }
+
+        /**
+         * append(int op, int id, int argument)
+         *
+         * Writes a record at the end of the log, the op last so that a record is complete once its op
+         * is visible. Commits every groupCommit records.
+         */
+        private void append(int op, int id, int argument) {
+            try {
+                int offset = offset(this.records);
+                if (offset == this.window.capacity()) {
+                    this.window.force();
+                    map(this.records);
+                    offset = 0;
+                }
+                this.window.putInt(offset + 4, id);
+                this.window.putInt(offset + 8, argument);
+                this.window.putInt(offset + 12, checksum(this.records, op, id, argument));
+                this.window.putInt(offset, op);
+                this.records++;
+                if (++this.uncommitted >= this.groupCommit) {
+                    commit();
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * checksum(long record, int op, int id, int argument)
+         *
+         * Returns the CRC32C of the record's position and fields.
+         */
+        private int checksum(long record, int op, int id, int argument) {
+            this.fields.putLong(0, record).putInt(8, op).putInt(12, id).putInt(16, argument);
+            this.crc.reset();
+            this.crc.update(this.fields.array(), 0, this.fields.capacity());
+            return (int) this.crc.getValue();
+        }
+
+        /**
+         * checkpointIfDue()
+         *
+         * Takes a checkpoint once the log holds checkpointEvery records. Called after an operation is
+         * completely logged, so the checkpoint never splits the records of one operation.
+         */
+        private void checkpointIfDue() {
+            if (this.records >= this.checkpointEvery) {
+                try {
+                    checkpoint();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        /**
+         * map(long record)
+         *
+         * Maps the log window that starts at the given record.
+         */
+        private void map(long record) throws IOException {
+            this.windowStart = HEADER_BYTES + record * RECORD_BYTES;
+            this.window = this.log.map(FileChannel.MapMode.READ_WRITE, this.windowStart, LOG_WINDOW);
+            this.window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private int offset(long record) {
+            return (int) (HEADER_BYTES + record * RECORD_BYTES - this.windowStart);
+        }
+
+        private Path checkpoint(int generation) {
+            return this.directory.resolve("heap." + generation + ".snapshot");
+        }
+
+        /**
+         * createLog(int generation)
+         *
+         * Writes an empty log of the given generation next to the log and moves it into place.
+         */
+        private void createLog(int generation) throws IOException {
+            Path file = this.directory.resolve("heap.log");
+            Path temporary = this.directory.resolve("heap.log.tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(generation).putInt(this.nextId);
+                write(channel, header);
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+   /**
+    * public static class Graph
+    *
+    * A weighted directed graph in compressed sparse row (CSR) form: the edges leaving vertex v are
+    * targets[offsets[v]] .. targets[offsets[v + 1] - 1], with the same indices in weights. An undirected
+    * graph stores every edge in both directions.
+    *
+    * dijkstra and prim run over any AddressablePriorityQueue engine given as a factory, keeping one
+    * handle per vertex: a vertex is inserted when it is first reached, its handle is decreased while it
+    * waits in the queue, and the vertex is read back from the handle's value when it is removed.
+    *
+    * The binary file format (read/write) is little-endian ints: magic, version, #vertices, #edges,
+    * then offsets, targets and weights.
+    */
+    public static class Graph {
+
+        private static final int MAGIC = 0x43535247;     // "CSRG"
+        private static final int VERSION = 1;
+        private static final int HEADER_BYTES = 16;
+        private static final int CHUNK = 1 << 24;        // ints per mapped window
+
+        private final int[] offsets;
+        private final int[] targets;
+        private final int[] weights;
+
+        /**
+         * public Graph(int[] offsets, int[] targets, int[] weights)
+         *
+         * Wraps the given CSR arrays, which are not copied. offsets has #vertices + 1 non-decreasing
+         * entries from 0 to #edges, and the weights are non-negative.
+         *
+         * Complexity: O(#vertices + #edges) for the validation
+         */
+        public Graph(int[] offsets, int[] targets, int[] weights) {
+            if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != targets.length
+                    || weights.length != targets.length) {
+                throw new IllegalArgumentException("offsets, targets and weights do not form a CSR graph");
+            }
+            int vertices = offsets.length - 1;
+            for (int v = 0; v < vertices; v++) {
+                if (offsets[v] > offsets[v + 1]) {
+                    throw new IllegalArgumentException("offsets decrease at vertex " + v);
+                }
+            }
+            for (int e = 0; e < targets.length; e++) {
+                if (targets[e] < 0 || targets[e] >= vertices || weights[e] < 0) {
+                    throw new IllegalArgumentException("bad edge " + e + ": target " + targets[e] + ", weight " + weights[e]);
+                }
+            }
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+        }
+
+        /**
+         * public static Graph fromEdges(int vertices, int[] from, int[] to, int[] weights, boolean undirected)
+         *
+         * Builds the CSR form of the given edge list with a counting sort on the source vertex.
+         * If undirected is true, every edge is also added in the opposite direction.
+         *
+         * Complexity: O(vertices + #edges)
+         */
+        public static Graph fromEdges(int vertices, int[] from, int[] to, int[] weights, boolean undirected) {
+            int edges = undirected ? 2 * from.length : from.length;
+            int[] offsets = new int[vertices + 1];
+            for (int e = 0; e < from.length; e++) {
+                offsets[from[e] + 1]++;
+                if (undirected) {
+                    offsets[to[e] + 1]++;
+                }
+            }
+            for (int v = 0; v < vertices; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] next = Arrays.copyOf(offsets, vertices);
+            int[] targets = new int[edges];
+            int[] edgeWeights = new int[edges];
+            for (int e = 0; e < from.length; e++) {
+                int i = next[from[e]]++;
+                targets[i] = to[e];
+                edgeWeights[i] = weights[e];
+                if (undirected) {
+                    i = next[to[e]]++;
+                    targets[i] = from[e];
+                    edgeWeights[i] = weights[e];
+                }
+            }
+            return new Graph(offsets, targets, edgeWeights);
+        }
+
+        /**
+         * public static Graph read(Path file)
+         *
+         * Reads a graph written by write(Path), mapping the file in windows of CHUNK ints.
+         * Throws IOException if the file is not a graph file or is truncated.
+         *
+         * Complexity: O(#vertices + #edges)
+         */
+        public static Graph read(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() < HEADER_BYTES) {
+                    throw new IOException("truncated graph file: " + file);
+                }
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException("not a graph file: " + file);
+                }
+                int vertices = header.getInt(8);
+                int edges = header.getInt(12);
+                if (vertices < 0 || edges < 0
+                        || channel.size() != HEADER_BYTES + 4L * (vertices + 1L + 2L * edges)) {
+                    throw new IOException("truncated graph file: " + file);
+                }
+                long position = HEADER_BYTES;
+                int[] offsets = new int[vertices + 1];
+                int[] targets = new int[edges];
+                int[] weights = new int[edges];
+                position = readInts(channel, position, offsets);
+                position = readInts(channel, position, targets);
+                readInts(channel, position, weights);
+                try {
+                    return new Graph(offsets, targets, weights);
+                }
+                catch (IllegalArgumentException e) {
+                    throw new IOException("corrupt graph file: " + file, e);
+                }
+            }
+        }
+
+        /**
+         * public void write(Path file)
+         *
+         * Writes the graph in the format read by read(Path).
+         *
+         * Complexity: O(#vertices + #edges)
+         */
+        public void write(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(4 * 4096).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(vertexCount()).putInt(edgeCount());
+                for (int[] array : new int[][] {this.offsets, this.targets, this.weights}) {
+                    for (int value : array) {
+                        if (!buffer.hasRemaining()) {
+                            FibonacciHeap.write(channel, buffer);
+                        }
+                        buffer.putInt(value);
+                    }
+                }
+                FibonacciHeap.write(channel, buffer);
+                channel.force(false);
+            }
+        }
+
+        public int vertexCount() {
+            return this.offsets.length - 1;
+        }
+
+        public int edgeCount() {
+            return this.targets.length;
+        }
+
+        /**
+         * public int[] dijkstra(int source, Supplier<Q> engine)
+         *
+         * Returns the length of the shortest path from source to every vertex, Integer.MAX_VALUE for the
+         * vertices that cannot be reached. Distances must fit in an int: a longer path throws
+         * ArithmeticException. Keys only grow from one deleteMin to the next, so the monotone engines
+         * (RadixHeap, FibonacciHeap in MONOTONE mode) can be used too.
+         *
+         * Complexity: O(#edges * decreaseKey + #vertices * deleteMin) of the engine,
+         * O(#edges + #vertices * log(#vertices)) amortized with FibonacciHeap
+         */
+        public <H extends AddressablePriorityQueue.Handle, Q extends AddressablePriorityQueue<H, Q>> int[] dijkstra(
+                int source, Supplier<Q> engine) {
+            int vertices = vertexCount();
+            int[] distance = new int[vertices];
+            Arrays.fill(distance, Integer.MAX_VALUE);
+            List<H> handles = handles(vertices);
+            Q queue = engine.get();
+            distance[source] = 0;
+            handles.set(source, queue.insert(0, source));
+            while (!queue.isEmpty()) {
+                H min = queue.findMin();
+                int v = min.getValue();
+                int d = min.getKey();
+                queue.deleteMin();
+                handles.set(v, null);
+                for (int e = this.offsets[v]; e < this.offsets[v + 1]; e++) {
+                    int u = this.targets[e];
+                    long candidate = (long) d + this.weights[e];
+                    if (candidate >= distance[u]) {
+                        continue;
+                    }
+                    if (candidate >= Integer.MAX_VALUE) {
+                        throw new ArithmeticException("distance to vertex " + u + " overflows an int");
+                    }
+                    H handle = handles.get(u);
+                    if (handle == null) {
+                        handles.set(u, queue.insert((int) candidate, u));
+                    }
+                    else {
+                        queue.decreaseKey(handle, distance[u] - (int) candidate);
+                    }
+                    distance[u] = (int) candidate;
+                }
+            }
+            return distance;
+        }
+
+        /**
+         * public int[] prim(int root, Supplier<Q> engine)
+         *
+         * Returns the minimum spanning tree of root's component as a parent array: the parent of
+         * every other vertex of the component, and -1 for root and for the vertices outside it.
+         * The graph must be undirected (every edge stored in both directions). The keys are edge
+         * weights, which are not monotone, so the monotone engines cannot be used.
+         *
+         * Complexity: O(#edges * decreaseKey + #vertices * deleteMin) of the engine,
+         * O(#edges + #vertices * log(#vertices)) amortized with FibonacciHeap
+         */
+        public <H extends AddressablePriorityQueue.Handle, Q extends AddressablePriorityQueue<H, Q>> int[] prim(
+                int root, Supplier<Q> engine) {
+            int vertices = vertexCount();
+            int[] parent = new int[vertices];
+            Arrays.fill(parent, -1);
+            boolean[] inTree = new boolean[vertices];
+            List<H> handles = handles(vertices);
+            Q queue = engine.get();
+            handles.set(root, queue.insert(0, root));
+            while (!queue.isEmpty()) {
+                int v = queue.findMin().getValue();
+                queue.deleteMin();
+                handles.set(v, null);
+                inTree[v] = true;
+                for (int e = this.offsets[v]; e < this.offsets[v + 1]; e++) {
+                    int u = this.targets[e];
+                    if (inTree[u]) {
+                        continue;
+                    }
+                    int weight = this.weights[e];
+                    H handle = handles.get(u);
+                    if (handle == null) {
+                        handles.set(u, queue.insert(weight, u));
+                        parent[u] = v;
+                    }
+                    else if (weight < handle.getKey()) {
+                        queue.decreaseKey(handle, handle.getKey() - weight);
+                        parent[u] = v;
+                    }
+                }
+            }
+            return parent;
+        }
+
+        /**
+         * handles(int vertices)
+         *
+         * Returns a list of one null handle per vertex, backed by an array.
+         */
+        private static <H> List<H> handles(int vertices) {
+            @SuppressWarnings("unchecked")
+            H[] handles = (H[]) new AddressablePriorityQueue.Handle[vertices];
+            return Arrays.asList(handles);
+        }
+
+        /**
+         * readInts(FileChannel channel, long position, int[] array)
+         *
+         * Fills array from the file at position, and returns the position after it.
+         */
+        private static long readInts(FileChannel channel, long position, int[] array) throws IOException {
+            for (int start = 0; start < array.length; start += CHUNK) {
+                int count = Math.min(CHUNK, array.length - start);
+                channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count).order(ByteOrder.LITTLE_ENDIAN)
+                        .asIntBuffer().get(array, start, count);
+                position += 4L * count;
+            }
+            return position;
+        }
+    }
+
+   /**
+    * public static class TimerService
+    *
+    * A scheduler of one-shot tasks on nanosecond deadlines (System.nanoTime() values), kept in a LongHeap.
+    * Cancelling a timer deletes its node, and moving a deadline earlier is a decreaseKey, so neither leaves
+    * a cancelled entry behind in the queue as ScheduledThreadPoolExecutor does without removeOnCancel.
+    *
+    * A single ticker thread sleeps until the earliest deadline. On every tick it takes all the due timers
+    * out of the heap under one lock acquisition, then hands their tasks to the executor.
+    *
+    * Deadlines are compared as deadline - other < 0, like System.nanoTime() values must be, so they may
+    * wrap around. Delays are capped the way ScheduledThreadPoolExecutor caps them, which keeps every
+    * pending deadline less than Long.MAX_VALUE away from the others.
+    */
+    public static class TimerService implements AutoCloseable {
+
+        private final LongHeap<Timer> heap = new LongHeap<Timer>() {
+            @Override
+            protected boolean less(Node<Timer> a, Node<Timer> b) {
+                return a.getKey() - b.getKey() < 0;
+            }
+        };
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = this.lock.newCondition();
+        private final Executor executor;
+        private final Thread ticker;
+        private Runnable[] due = new Runnable[16];
+        private boolean closed;
+
+        /**
+         * public TimerService()
+         *
+         * Initialize a service that runs the tasks on ForkJoinPool.commonPool().
+         */
+        public TimerService() {
+            this(ForkJoinPool.commonPool());
+        }
+
+        /**
+         * public TimerService(Executor executor)
+         *
+         * Initialize a service that runs the tasks on executor (on JDK 21 and later, a virtual thread per
+         * task executor gives every task its own thread), and start its ticker thread. A task the
+         * executor rejects is dropped and its exception goes to the ticker thread's default uncaught
+         * exception handler.
+         */
+        public TimerService(Executor executor) {
+            this(executor, null);
+        }
+
+        /**
+         * public TimerService(Executor executor, Thread.UncaughtExceptionHandler handler)
+         *
+         * Like TimerService(executor), but reports the exceptions thrown by executor.execute, such as
+         * RejectedExecutionException, to handler. The ticker keeps running either way.
+         */
+        public TimerService(Executor executor, Thread.UncaughtExceptionHandler handler) {
+            this.executor = executor;
+            this.ticker = new Thread(this::tick, "timer-service");
+            this.ticker.setDaemon(true);
+            this.ticker.setUncaughtExceptionHandler(handler);
+            this.ticker.start();
+        }
+
+        /**
+         * public Timer schedule(Runnable task, long delay, TimeUnit unit)
+         *
+         * Schedules task to run once after the given delay, and returns its timer. A negative delay
+         * is 0, and a huge one is capped (see triggerTime).
+         *
+         * Complexity: O(1)
+         */
+        public Timer schedule(Runnable task, long delay, TimeUnit unit) {
+            return add(task, unit.toNanos(delay), false);
+        }
+
+        /**
+         * public Timer scheduleAt(Runnable task, long deadline)
+         *
+         * Schedules task to run once when System.nanoTime() reaches deadline, and returns its timer.
+         * A deadline in the past is due at once.
+         * Throws IllegalStateException once the service is closed.
+         *
+         * Complexity: O(1)
+         */
+        public Timer scheduleAt(Runnable task, long deadline) {
+            return add(task, deadline, true);
+        }
+
+        /**
+         * add(Runnable task, long time, boolean absolute)
+         *
+         * Inserts a timer due at the deadline time if absolute is true, or else after time nanoseconds.
+         */
+        private Timer add(Runnable task, long time, boolean absolute) {
+            Timer timer = new Timer(task);
+            this.lock.lock();
+            try {
+                if (this.closed) {
+                    throw new IllegalStateException("the timer service is closed");
+                }
+                long now = System.nanoTime();
+                timer.node = this.heap.insert(triggerTime(now, absolute ? time - now : time), timer);
+                wakeIfFirst(timer);
+            }
+            finally {
+                this.lock.unlock();
+            }
+            return timer;
+        }
+
+        /**
+         * public boolean cancel(Timer timer)
+         *
+         * Removes the timer if it has not fired yet. Returns false if it already fired or was cancelled.
+         *
+         * Complexity: O(log(n))
+         * amortized: O(1)
+         */
+        public boolean cancel(Timer timer) {
+            this.lock.lock();
+            try {
+                if (timer.node == null) {
+                    return false;
+                }
+                this.heap.delete(timer.node);
+                timer.node = null;
+                return true;
+            }
+            finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * public boolean reschedule(Timer timer, long deadline)
+         *
+         * Moves the deadline of a timer that has not fired yet. An earlier deadline is a decreaseKey; a
+         * later one deletes the node and inserts a new one. The deadline is capped like a delay given to
+         * schedule. Returns false if the timer already fired or was cancelled.
+         *
+         * Complexity: O(1) amortized for an earlier deadline, O(log(n)) amortized for a later one
+         */
+        public boolean reschedule(Timer timer, long deadline) {
+            this.lock.lock();
+            try {
+                LongHeap.Node<Timer> node = timer.node;
+                if (node == null) {
+                    return false;
+                }
+                long now = System.nanoTime();
+                long trigger = triggerTime(now, deadline - now);
+                if (trigger - node.getKey() <= 0) {
+                    this.heap.decreaseKey(node, node.getKey() - trigger);
+                }
+                else {
+                    this.heap.delete(node);
+                    timer.node = this.heap.insert(trigger, timer);
+                }
+                wakeIfFirst(timer);
+                return true;
+            }
+            finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * public int size()
+         *
+         * Returns the number of timers that have neither fired nor been cancelled.
+         *
+         * Complexity: O(1)
+         */
+        public int size() {
+            this.lock.lock();
+            try {
+                return this.heap.size();
+            }
+            finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * public void close()
+         *
+         * Stops the ticker and drops the pending timers. Tasks already handed to the executor still run.
+         */
+        public void close() {
+            this.lock.lock();
+            try {
+                this.closed = true;
+                while (!this.heap.isEmpty()) {
+                    this.heap.findMin().getValue().node = null;
+                    this.heap.deleteMin();
+                }
+                this.changed.signal();
+            }
+            finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * triggerTime(long now, long delay)
+         *
+         * Returns the deadline delay nanoseconds after now, as ScheduledThreadPoolExecutor.triggerTime
+         * computes it: a negative delay is 0, and a delay of Long.MAX_VALUE / 2 or more is capped so
+         * that the deadline is less than Long.MAX_VALUE after the earliest one, even when that one is
+         * overdue. Otherwise deadline - first would overflow, and the order of the heap break.
+         */
+        private long triggerTime(long now, long delay) {
+            if (delay < 0) {
+                delay = 0;
+            }
+            else if (delay >= (Long.MAX_VALUE >> 1)) {
+                LongHeap.Node<Timer> first = this.heap.findMin();
+                if (first != null) {
+                    long firstDelay = first.getKey() - now;
+                    if (firstDelay < 0 && delay - firstDelay < 0) {
+                        delay = Long.MAX_VALUE + firstDelay;
+                    }
+                }
+            }
+            return now + delay;
+        }
+
+        /**
+         * wakeIfFirst(Timer timer)
+         *
+         * Wakes the ticker if timer is now the earliest one, so it sleeps until the new deadline instead.
+         */
+        private void wakeIfFirst(Timer timer) {
+            if (this.heap.findMin() == timer.node) {
+                this.changed.signal();
+            }
+        }
+
+        /**
+         * tick()
+         *
+         * The ticker loop: waits for the earliest deadline, takes every due timer out of the heap, and
+         * runs their tasks on the executor outside of the lock. An exception from the executor drops
+         * that task only, and is reported to the ticker's uncaught exception handler.
+         */
+        private void tick() {
+            while (true) {
+                int count = 0;
+                this.lock.lock();
+                try {
+                    while (count == 0) {
+                        if (this.closed) {
+                            return;
+                        }
+                        LongHeap.Node<Timer> first = this.heap.findMin();
+                        if (first == null) {
+                            this.changed.awaitUninterruptibly();
+                            continue;
+                        }
+                        long now = System.nanoTime();
+                        long wait = first.getKey() - now;
+                        if (wait > 0) {
+                            this.changed.awaitNanos(wait);
+                            continue;
+                        }
+                        // batched expiry: every timer due at now leaves the heap in this one pass
+                        while (first != null && first.getKey() - now <= 0) {
+                            if (count == this.due.length) {
+                                this.due = Arrays.copyOf(this.due, 2 * count);
+                            }
+                            Timer timer = first.getValue();
+                            timer.node = null;
+                            this.due[count++] = timer.task;
+                            this.heap.deleteMin();
+                            first = this.heap.findMin();
+                        }
+                    }
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                finally {
+                    this.lock.unlock();
+                }
+                for (int i = 0; i < count; i++) {
+                    Runnable task = this.due[i];
+                    this.due[i] = null;
+                    try {
+                        this.executor.execute(task);
+                    }
+                    catch (RuntimeException e) {
+                        this.ticker.getUncaughtExceptionHandler().uncaughtException(this.ticker, e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * public static class Timer
+         *
+         * The handle of a scheduled task. Its node is null once the timer fired or was cancelled.
+         */
+        public static class Timer {
+
+            private final Runnable task;
+            private LongHeap.Node<Timer> node;
+
+            private Timer(Runnable task) {
+                this.task = task;
+            }
+
+            public Runnable getTask() {
+                return this.task;
+            }
+        }
+    }
 }
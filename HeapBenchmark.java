@@ -0,0 +1,798 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+
+/**
+ * HeapBenchmark
+ *
+ * Measures every FibonacciHeap operation over several key orders and sizes, next to ArrayHeap, the
+ * other AddressablePriorityQueue engines and java.util.PriorityQueue, Dijkstra and Prim on FibonacciHeap.Graph per engine,
+ * and FibonacciHeap.TimerService next to ScheduledThreadPoolExecutor. Each line reports the average time and the bytes allocated per operation,
+ * in a fixed column layout so runs from different commits can be compared with diff.
+ *
+ * Usage: java HeapBenchmark [maxSize] [engine|operation|order ...]
+ * maxSize defaults to 10^6; sizes run from 10^3 up to maxSize in powers of 10 (10^8 needs a large -Xmx).
+ * The other arguments keep only the matching engines, operations and orders.
+ * The same benchmarks run under JMH, with the GC profiler, through jmh/benchmark/HeapJmh.java.
+ */
+public class HeapBenchmark {
+    static final PrintStream stream = System.out;
+    static final String[] ORDERS = {"sorted", "reverse", "random", "adversarial"};
+    static final int WARMUP = 3;
+    static final int ROUNDS = 5;
+    static final int KMIN = 100;
+    static final int BURST = 4;
+    static final long HOUR = 3_600_000_000L;     // in microseconds
+    static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static long sink;
+
+    /**
+     * A benchmark of one operation: setup() builds the state outside of the measurement,
+     * run() performs ops() operations on it.
+     */
+    abstract static class Bench {
+        final String engine;
+        final String operation;
+
+        Bench(String engine, String operation) {
+            this.engine = engine;
+            this.operation = operation;
+        }
+
+        void setup(int[] keys) {
+        }
+
+        abstract void run(int[] keys);
+
+        long ops(int[] keys) {
+            return keys.length;
+        }
+
+        @Override
+        public String toString() {
+            return engine + "." + operation;
+        }
+    }
+
+    /**
+     * static int[] keys(String order, int n)
+     *
+     * Returns n distinct keys in the given order. The adversarial order is the bit-reversal
+     * permutation, which jumps between the low and high halves of the key range at every step,
+     * so consecutive keys never land in the same subtree after consolidation.
+     */
+    static int[] keys(String order, int n) {
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = i;
+        }
+        switch (order) {
+            case "reverse":
+                for (int i = 0; i < n; i++) {
+                    keys[i] = n - 1 - i;
+                }
+                break;
+            case "random":
+                Random random = new Random(n);
+                for (int i = n - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int tmp = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = tmp;
+                }
+                break;
+            case "adversarial":
+                int bits = 32 - Integer.numberOfLeadingZeros(Math.max(n - 1, 1));
+                int count = 0;
+                for (int i = 0; count < n; i++) {
+                    int reversed = Integer.reverse(i) >>> (32 - bits);
+                    if (reversed < n) {
+                        keys[count++] = reversed;
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        return keys;
+    }
+
+    static FibonacciHeap.HeapNode[] fill(FibonacciHeap heap, int[] keys) {
+        FibonacciHeap.HeapNode[] nodes = new FibonacciHeap.HeapNode[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            nodes[i] = heap.insert(keys[i]);
+        }
+        return nodes;
+    }
+
+    static int indexOfMin(int[] keys) {
+        int min = 0;
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i] < keys[min]) {
+                min = i;
+            }
+        }
+        return min;
+    }
+
+    static int[] fill(FibonacciHeap.SlotHeap heap, int[] keys) {
+        int[] handles = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            handles[i] = heap.insert(keys[i]);
+        }
+        return handles;
+    }
+
+    static List<Bench> fibonacciBenches() {
+        List<Bench> benches = new ArrayList<>();
+        benches.add(new Bench("fibonacci", "insert") {
+            void run(int[] keys) {
+                sink += fill(new FibonacciHeap(), keys).length;
+            }
+        });
+        benches.add(new Bench("fibonacci", "insertAll") {
+            void run(int[] keys) {
+                sink += new FibonacciHeap().insertAll(keys).length;
+            }
+        });
+        benches.add(new Bench("fibonacci", "findMin") {
+            FibonacciHeap heap;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap();
+                fill(heap, keys);
+            }
+            void run(int[] keys) {
+                for (int i = 0; i < keys.length; i++) {
+                    sink += heap.findMin().getKey();
+                }
+            }
+        });
+        benches.add(new Bench("fibonacci", "deleteMin") {
+            FibonacciHeap heap;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap();
+                fill(heap, keys);
+            }
+            void run(int[] keys) {
+                while (!heap.isEmpty()) {
+                    heap.deleteMin();
+                }
+            }
+        });
+        benches.add(new Bench("fibonacci", "drainMin") {
+            FibonacciHeap heap;
+            final int[] out = new int[1000];
+            void setup(int[] keys) {
+                heap = new FibonacciHeap();
+                fill(heap, keys);
+            }
+            void run(int[] keys) {
+                while (!heap.isEmpty()) {
+                    sink += heap.drainMin(out.length, out);
+                }
+            }
+        });
+        benches.add(new Bench("fibonacci", "decreaseKey") {
+            FibonacciHeap heap;
+            FibonacciHeap.HeapNode[] nodes;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap();
+                nodes = fill(heap, keys);
+                heap.deleteMin();
+            }
+            void run(int[] keys) {
+                // decrease from the back, so every key stays distinct and cascades are exercised
+                for (int i = nodes.length - 1; i >= 0; i--) {
+                    if (nodes[i] != heap.getMin() && nodes[i].getParent() != null) {
+                        heap.decreaseKey(nodes[i], keys.length);
+                    }
+                }
+            }
+        });
+        for (boolean buffered : new boolean[] {false, true}) {
+            benches.add(new Bench("fibonacci", buffered ? "burstBuffer" : "burst") {
+                FibonacciHeap heap;
+                FibonacciHeap.HeapNode[] nodes;
+                void setup(int[] keys) {
+                    heap = new FibonacciHeap();
+                    heap.setDecreaseKeyBuffering(buffered);
+                    nodes = new FibonacciHeap.HeapNode[keys.length];
+                    for (int i = 0; i < keys.length; i++) {
+                        nodes[i] = heap.insert(BURST * keys[i] + BURST);
+                    }
+                    heap.deleteMin();
+                }
+                void run(int[] keys) {
+                    // every node is decreased BURST times in a row, with a deleteMin after every 64 nodes
+                    for (int i = nodes.length - 1; i >= 0; i--) {
+                        if (nodes[i].getParent() != null) {
+                            for (int j = 0; j < BURST; j++) {
+                                heap.decreaseKey(nodes[i], 1);
+                            }
+                        }
+                        if ((i & 63) == 0 && heap.size() > nodes.length / 2) {
+                            heap.deleteMin();
+                        }
+                    }
+                }
+                long ops(int[] keys) {
+                    return (long) BURST * keys.length;
+                }
+            });
+        }
+        benches.add(new Bench("fibonacci", "delete") {
+            FibonacciHeap heap;
+            FibonacciHeap.HeapNode[] nodes;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap();
+                nodes = fill(heap, keys);
+            }
+            void run(int[] keys) {
+                for (FibonacciHeap.HeapNode node : nodes) {
+                    heap.delete(node);
+                }
+            }
+        });
+        benches.add(new Bench("fibonacci", "increaseKey") {
+            FibonacciHeap heap;
+            FibonacciHeap.HeapNode[] nodes;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap();
+                nodes = fill(heap, keys);
+                heap.deleteMin();
+                nodes[indexOfMin(keys)] = heap.insert(keys.length);
+            }
+            void run(int[] keys) {
+                for (FibonacciHeap.HeapNode node : nodes) {
+                    heap.increaseKey(node, keys.length);
+                }
+            }
+        });
+        benches.add(new Bench("fibonacci", "deleteInsert") {
+            FibonacciHeap heap;
+            FibonacciHeap.HeapNode[] nodes;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap();
+                nodes = fill(heap, keys);
+                heap.deleteMin();
+                nodes[indexOfMin(keys)] = heap.insert(keys.length);
+            }
+            void run(int[] keys) {
+                // the workaround for increaseKey
+                for (int i = 0; i < nodes.length; i++) {
+                    int key = nodes[i].getKey();
+                    heap.delete(nodes[i]);
+                    nodes[i] = heap.insert(key + keys.length);
+                }
+            }
+        });
+        benches.add(new Bench("fibonacci", "extractRange") {
+            FibonacciHeap heap;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap();
+                fill(heap, keys);
+                heap.deleteMin();
+            }
+            void run(int[] keys) {
+                sink += heap.extractRange(keys.length / 4, 3 * keys.length / 4 - 1, key -> sink += key);
+            }
+            long ops(int[] keys) {
+                return keys.length / 2;
+            }
+        });
+        benches.add(new Bench("fibonacci", "rangeDelete") {
+            FibonacciHeap heap;
+            FibonacciHeap.HeapNode[] nodes;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap();
+                nodes = fill(heap, keys);
+                heap.deleteMin();
+            }
+            void run(int[] keys) {
+                // the workaround for extractRange: delete every node of the range through its handle
+                for (FibonacciHeap.HeapNode node : nodes) {
+                    int key = node.getKey();
+                    if (key >= keys.length / 4 && key < 3 * keys.length / 4) {
+                        sink += key;
+                        heap.delete(node);
+                    }
+                }
+            }
+            long ops(int[] keys) {
+                return keys.length / 2;
+            }
+        });
+        benches.add(new Bench("fibonacci", "meld") {
+            FibonacciHeap[] heaps;
+            void setup(int[] keys) {
+                heaps = new FibonacciHeap[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    heaps[i] = new FibonacciHeap();
+                    heaps[i].insert(keys[i]);
+                }
+            }
+            void run(int[] keys) {
+                FibonacciHeap heap = new FibonacciHeap();
+                for (FibonacciHeap other : heaps) {
+                    heap.meld(other);
+                }
+                sink += heap.size();
+            }
+        });
+        benches.add(new Bench("fibonacci", "kMin") {
+            FibonacciHeap heap;
+            final int[] out = new int[KMIN];
+            final FibonacciHeap.NodeFrontier frontier = new FibonacciHeap.NodeFrontier();
+            void setup(int[] keys) {
+                // one deleteMin leaves the heap consolidated into several trees
+                heap = new FibonacciHeap();
+                fill(heap, keys);
+                heap.deleteMin();
+            }
+            void run(int[] keys) {
+                for (int i = 0; i < keys.length / KMIN; i++) {
+                    sink += heap.kMin(KMIN, out, frontier);
+                }
+            }
+            long ops(int[] keys) {
+                return keys.length / KMIN;
+            }
+        });
+        return benches;
+    }
+
+    static List<Bench> arrayBenches() {
+        List<Bench> benches = new ArrayList<>();
+        benches.add(new Bench("array", "insert") {
+            void run(int[] keys) {
+                sink += fill(new FibonacciHeap.ArrayHeap(), keys).length;
+            }
+        });
+        benches.add(new Bench("array", "deleteMin") {
+            FibonacciHeap.ArrayHeap heap;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap.ArrayHeap(keys.length);
+                fill(heap, keys);
+            }
+            void run(int[] keys) {
+                while (!heap.isEmpty()) {
+                    heap.deleteMin();
+                }
+            }
+        });
+        benches.add(new Bench("array", "decreaseKey") {
+            FibonacciHeap.ArrayHeap heap;
+            int[] handles;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap.ArrayHeap(keys.length);
+                handles = fill(heap, keys);
+                heap.deleteMin();
+            }
+            void run(int[] keys) {
+                for (int i = handles.length - 1; i >= 0; i--) {
+                    if (handles[i] != heap.findMin() && heap.getParent(handles[i]) != FibonacciHeap.SlotHeap.NONE) {
+                        heap.decreaseKey(handles[i], keys.length);
+                    }
+                }
+            }
+        });
+        benches.add(new Bench("array", "delete") {
+            FibonacciHeap.ArrayHeap heap;
+            int[] handles;
+            void setup(int[] keys) {
+                heap = new FibonacciHeap.ArrayHeap(keys.length);
+                handles = fill(heap, keys);
+            }
+            void run(int[] keys) {
+                for (int handle : handles) {
+                    heap.delete(handle);
+                }
+            }
+        });
+        return benches;
+    }
+
+    /**
+     * static List<Bench> queueBenches(String engine, Supplier<Q> factory)
+     *
+     * The operations of an AddressablePriorityQueue engine, measured through the interface only.
+     * decreaseKey halves the keys after deleting the minimum 0, which keeps them above the last
+     * minimum for the monotone radix heap.
+     */
+    static <H extends AddressablePriorityQueue.Handle, Q extends AddressablePriorityQueue<H, Q>> List<Bench> queueBenches(
+            String engine, Supplier<Q> factory) {
+        List<Bench> benches = new ArrayList<>();
+        benches.add(new Bench(engine, "insert") {
+            void run(int[] keys) {
+                Q queue = factory.get();
+                for (int key : keys) {
+                    queue.insert(key);
+                }
+                sink += queue.size();
+            }
+        });
+        benches.add(new Bench(engine, "deleteMin") {
+            Q queue;
+            void setup(int[] keys) {
+                queue = factory.get();
+                for (int key : keys) {
+                    queue.insert(key);
+                }
+            }
+            void run(int[] keys) {
+                while (!queue.isEmpty()) {
+                    sink += queue.findMin().getKey();
+                    queue.deleteMin();
+                }
+            }
+        });
+        benches.add(new Bench(engine, "decreaseKey") {
+            Q queue;
+            List<H> nodes;
+            void setup(int[] keys) {
+                queue = factory.get();
+                nodes = new ArrayList<>(keys.length);
+                for (int key : keys) {
+                    nodes.add(queue.insert(key));
+                }
+                queue.deleteMin();
+            }
+            void run(int[] keys) {
+                for (H node : nodes) {
+                    if (node.getKey() > 1) {
+                        queue.decreaseKey(node, node.getKey() / 2);
+                    }
+                }
+            }
+        });
+        benches.add(new Bench(engine, "delete") {
+            Q queue;
+            List<H> nodes;
+            void setup(int[] keys) {
+                queue = factory.get();
+                nodes = new ArrayList<>(keys.length);
+                for (int key : keys) {
+                    nodes.add(queue.insert(key));
+                }
+                // one deleteMin gives the engines their usual shape
+                queue.deleteMin();
+            }
+            void run(int[] keys) {
+                for (H node : nodes) {
+                    if (node.getKey() != 0) {
+                        queue.delete(node);
+                    }
+                }
+            }
+        });
+        benches.add(new Bench(engine, "meld") {
+            List<Q> queues;
+            void setup(int[] keys) {
+                queues = new ArrayList<>(keys.length);
+                for (int key : keys) {
+                    Q queue = factory.get();
+                    queue.insert(key);
+                    queues.add(queue);
+                }
+            }
+            void run(int[] keys) {
+                Q queue = factory.get();
+                for (Q other : queues) {
+                    queue.meld(other);
+                }
+                sink += queue.size();
+            }
+        });
+        return benches;
+    }
+
+    static List<Bench> priorityQueueBenches() {
+        List<Bench> benches = new ArrayList<>();
+        benches.add(new Bench("priorityQueue", "insert") {
+            void run(int[] keys) {
+                PriorityQueue<Integer> queue = new PriorityQueue<>();
+                for (int key : keys) {
+                    queue.add(key);
+                }
+                sink += queue.size();
+            }
+        });
+        benches.add(new Bench("priorityQueue", "findMin") {
+            PriorityQueue<Integer> queue;
+            void setup(int[] keys) {
+                queue = new PriorityQueue<>();
+                for (int key : keys) {
+                    queue.add(key);
+                }
+            }
+            void run(int[] keys) {
+                for (int i = 0; i < keys.length; i++) {
+                    sink += queue.peek();
+                }
+            }
+        });
+        benches.add(new Bench("priorityQueue", "deleteMin") {
+            PriorityQueue<Integer> queue;
+            void setup(int[] keys) {
+                queue = new PriorityQueue<>();
+                for (int key : keys) {
+                    queue.add(key);
+                }
+            }
+            void run(int[] keys) {
+                while (!queue.isEmpty()) {
+                    sink += queue.poll();
+                }
+            }
+        });
+        benches.add(new Bench("priorityQueue", "meld") {
+            List<PriorityQueue<Integer>> queues;
+            void setup(int[] keys) {
+                queues = new ArrayList<>(keys.length);
+                for (int key : keys) {
+                    PriorityQueue<Integer> queue = new PriorityQueue<>();
+                    queue.add(key);
+                    queues.add(queue);
+                }
+            }
+            void run(int[] keys) {
+                PriorityQueue<Integer> queue = new PriorityQueue<>();
+                for (PriorityQueue<Integer> other : queues) {
+                    queue.addAll(other);
+                }
+                sink += queue.size();
+            }
+        });
+        return benches;
+    }
+
+    /**
+     * static List<Bench> graphBenches(String engine, Supplier<Q> factory, boolean monotone)
+     *
+     * Dijkstra and (unless the engine is monotone) Prim over a road-like graph of n vertices: a grid
+     * with random weights whose vertices are numbered in the key order, so the order decides how
+     * scattered the neighbours of a vertex are in memory. One operation is one vertex.
+     */
+    static <H extends AddressablePriorityQueue.Handle, Q extends AddressablePriorityQueue<H, Q>> List<Bench> graphBenches(
+            String engine, Supplier<Q> factory, boolean monotone) {
+        List<Bench> benches = new ArrayList<>();
+        benches.add(new Bench(engine, "dijkstra") {
+            void run(int[] keys) {
+                sink += graph(keys).dijkstra(keys[0], factory)[keys[keys.length - 1]];
+            }
+        });
+        if (!monotone) {
+            benches.add(new Bench(engine, "prim") {
+                void run(int[] keys) {
+                    sink += graph(keys).prim(keys[0], factory)[keys[keys.length - 1]];
+                }
+            });
+        }
+        return benches;
+    }
+
+    /**
+     * static List<Bench> timerBenches()
+     *
+     * Scheduling and cancelling timers one hour ahead (so none fires) with FibonacciHeap.TimerService and
+     * with ScheduledThreadPoolExecutor (removing cancelled tasks), the key being the delay in microseconds.
+     */
+    static List<Bench> timerBenches() {
+        List<Bench> benches = new ArrayList<>();
+        FibonacciHeap.TimerService service = new FibonacciHeap.TimerService();
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.setRemoveOnCancelPolicy(true);
+        Runnable task = () -> sink++;
+        benches.add(new Bench("timer", "schedule") {
+            FibonacciHeap.TimerService.Timer[] timers = new FibonacciHeap.TimerService.Timer[0];
+            void setup(int[] keys) {
+                for (FibonacciHeap.TimerService.Timer timer : timers) {
+                    service.cancel(timer);
+                }
+                timers = new FibonacciHeap.TimerService.Timer[keys.length];
+            }
+            void run(int[] keys) {
+                for (int i = 0; i < keys.length; i++) {
+                    timers[i] = service.schedule(task, HOUR + keys[i], TimeUnit.MICROSECONDS);
+                }
+            }
+        });
+        benches.add(new Bench("timer", "cancel") {
+            FibonacciHeap.TimerService.Timer[] timers;
+            void setup(int[] keys) {
+                timers = new FibonacciHeap.TimerService.Timer[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    timers[i] = service.schedule(task, HOUR + keys[i], TimeUnit.MICROSECONDS);
+                }
+            }
+            void run(int[] keys) {
+                for (FibonacciHeap.TimerService.Timer timer : timers) {
+                    service.cancel(timer);
+                }
+            }
+        });
+        benches.add(new Bench("scheduledPool", "schedule") {
+            List<ScheduledFuture<?>> futures = new ArrayList<>();
+            void setup(int[] keys) {
+                for (ScheduledFuture<?> future : futures) {
+                    future.cancel(false);
+                }
+                futures = new ArrayList<>(keys.length);
+            }
+            void run(int[] keys) {
+                for (int key : keys) {
+                    futures.add(pool.schedule(task, HOUR + key, TimeUnit.MICROSECONDS));
+                }
+            }
+        });
+        benches.add(new Bench("scheduledPool", "cancel") {
+            List<ScheduledFuture<?>> futures;
+            void setup(int[] keys) {
+                futures = new ArrayList<>(keys.length);
+                for (int key : keys) {
+                    futures.add(pool.schedule(task, HOUR + key, TimeUnit.MICROSECONDS));
+                }
+            }
+            void run(int[] keys) {
+                for (ScheduledFuture<?> future : futures) {
+                    future.cancel(false);
+                }
+            }
+        });
+        return benches;
+    }
+
+    static int[] graphKeys;
+    static FibonacciHeap.Graph graph;
+
+    /**
+     * static FibonacciHeap.Graph graph(int[] keys)
+     *
+     * Returns the grid graph over keys (cell i of the grid is vertex keys[i]), building it only when
+     * the keys change.
+     */
+    static FibonacciHeap.Graph graph(int[] keys) {
+        if (keys != graphKeys) {
+            int n = keys.length;
+            int width = (int) Math.ceil(Math.sqrt(n));
+            Random random = new Random(n);
+            int[] from = new int[2 * n];
+            int[] to = new int[2 * n];
+            int[] weights = new int[2 * n];
+            int edges = 0;
+            for (int i = 0; i < n; i++) {
+                if ((i + 1) % width != 0 && i + 1 < n) {
+                    from[edges] = keys[i];
+                    to[edges] = keys[i + 1];
+                    weights[edges++] = 1 + random.nextInt(1000);
+                }
+                if (i + width < n) {
+                    from[edges] = keys[i];
+                    to[edges] = keys[i + width];
+                    weights[edges++] = 1 + random.nextInt(1000);
+                }
+            }
+            graph = FibonacciHeap.Graph.fromEdges(n, Arrays.copyOf(from, edges), Arrays.copyOf(to, edges),
+                    Arrays.copyOf(weights, edges), true);
+            graphKeys = keys;
+        }
+        return graph;
+    }
+
+    /**
+     * static void measure(Bench bench, String order, int n)
+     *
+     * Runs WARMUP unmeasured rounds and ROUNDS measured rounds of bench over n keys in the given order,
+     * and prints the average time and allocation per operation of the measured rounds.
+     */
+    static void measure(Bench bench, String order, int n) {
+        int[] keys = keys(order, n);
+        long thread = Thread.currentThread().getId();
+        long nanos = 0;
+        long bytes = 0;
+        long ops = 0;
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            bench.setup(keys);
+            long bytesBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            bench.run(keys);
+            long elapsed = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+            if (round >= WARMUP) {
+                nanos += elapsed;
+                bytes += allocated;
+                ops += bench.ops(keys);
+            }
+        }
+        ops = Math.max(ops, 1);
+        stream.format("%-14s %-12s %-12s %10d %12.1f ns/op %10.1f B/op%n",
+                bench.engine, bench.operation, order, n, (double) nanos / ops, (double) bytes / ops);
+    }
+
+    /**
+     * static List<Bench> benches()
+     *
+     * Every benchmark, in the order main() runs them; HeapJmh looks them up here by their names.
+     */
+    static List<Bench> benches() {
+        List<Bench> benches = new ArrayList<>();
+        benches.addAll(fibonacciBenches());
+        benches.addAll(arrayBenches());
+        benches.addAll(queueBenches("pairing", FibonacciHeap.PairingHeap::new));
+        benches.addAll(queueBenches("rankPairing", FibonacciHeap.RankPairingHeap::new));
+        benches.addAll(queueBenches("binary", FibonacciHeap.BinaryHeap::new));
+        benches.addAll(queueBenches("radix", FibonacciHeap.RadixHeap::new));
+        benches.addAll(queueBenches("monotone", () -> new FibonacciHeap(FibonacciHeap.Mode.MONOTONE)));
+        benches.addAll(priorityQueueBenches());
+        benches.addAll(timerBenches());
+        benches.addAll(graphBenches("fibonacci", FibonacciHeap::new, false));
+        benches.addAll(graphBenches("pairing", FibonacciHeap.PairingHeap::new, false));
+        benches.addAll(graphBenches("rankPairing", FibonacciHeap.RankPairingHeap::new, false));
+        benches.addAll(graphBenches("binary", FibonacciHeap.BinaryHeap::new, false));
+        benches.addAll(graphBenches("radix", FibonacciHeap.RadixHeap::new, true));
+        benches.addAll(graphBenches("monotone", () -> new FibonacciHeap(FibonacciHeap.Mode.MONOTONE), true));
+        return benches;
+    }
+
+    static boolean selected(List<String> filters, String... names) {
+        if (filters.isEmpty()) {
+            return true;
+        }
+        for (String name : names) {
+            if (filters.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<String> engines = new ArrayList<>();
+        List<String> operations = new ArrayList<>();
+        List<String> orders = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (Arrays.asList(ORDERS).contains(args[i])) {
+                orders.add(args[i]);
+            }
+            else if (Arrays.asList("fibonacci", "array", "pairing", "rankPairing", "binary", "radix", "monotone", "priorityQueue", "timer", "scheduledPool").contains(args[i])) {
+                engines.add(args[i]);
+            }
+            else {
+                operations.add(args[i]);
+            }
+        }
+
+        List<Bench> benches = benches();
+        for (long n = 1000; n <= maxSize; n *= 10) {
+            for (Bench bench : benches) {
+                if (!selected(engines, bench.engine) || !selected(operations, bench.operation)) {
+                    continue;
+                }
+                for (String order : ORDERS) {
+                    if (selected(orders, order)) {
+                        measure(bench, order, (int) n);
+                    }
+                }
+            }
+        }
+        if (sink == 42) {
+            stream.println();
+        }
+    }
+}
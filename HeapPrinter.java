@@ -1,9 +1,36 @@
+import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 
 public class HeapPrinter {
@@ -261,6 +288,1210 @@ public class HeapPrinter {
 
     }
 
+    public static void checkArrayHeap(){
+        checkSlotHeap(new FibonacciHeap.ArrayHeap());
+    }
+
+    public static void checkMapped() throws IOException {
+        Path file=Files.createTempFile("heap",".bin");
+        try{
+            try(FibonacciHeap.MappedHeap heap=new FibonacciHeap.MappedHeap(file)){
+                checkSlotHeap(heap);
+            }
+
+            // the deletions of manyTesters(), then reopen the file and read the rest back
+            try(FibonacciHeap.MappedHeap heap=new FibonacciHeap.MappedHeap(file)){
+                int[] handles=new int[100];
+                for(int i=1;i<=100;i++){
+                    handles[i-1]=heap.insert(i);
+                }
+                heap.deleteMin();
+                heap.deleteMin();
+                for(int i=3;i<=36;i++){
+                    heap.delete(handles[i-1]);
+                }
+                System.out.println("countereps= "+Arrays.toString(heap.countersRep()));
+            }
+            try(FibonacciHeap.MappedHeap heap=new FibonacciHeap.MappedHeap(file)){
+                for(int i=37;i<=100;i++){
+                    if(heap.getKey(heap.findMin())!=i)
+                        System.out.println("ERROR");
+                    heap.deleteMin();
+                }
+                if(!heap.isEmpty())
+                    System.out.println("ERROR");
+            }
+        }
+        finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    static void checkSlotHeap(FibonacciHeap.SlotHeap heap){
+        int size=((int)Math.pow(2,3)+1);
+        int[] handles=new int[size];
+        for(int i=0;i<size;i++){
+            handles[i]=heap.insert(i+1);
+        }
+        heap.decreaseKey(handles[5],6);
+        System.out.println("countereps= "+Arrays.toString(heap.countersRep()));
+        heap.deleteMin();
+        System.out.println("countereps= "+Arrays.toString(heap.countersRep()));
+        heap.deleteMin();
+        System.out.println("countereps= "+Arrays.toString(heap.countersRep()));
+        heap.decreaseKey(handles[3],4);
+        System.out.println("countereps= "+Arrays.toString(heap.countersRep()));
+        heap.delete(handles[8]);
+        if(heap.getKey(heap.findMin())!=0 || heap.size()!=6)
+            System.out.println("ERROR");
+        // a deleted slot or a handle past the last slot is rejected and leaves the heap intact
+        expectThrows(IllegalArgumentException.class,()->heap.delete(handles[8]));
+        expectThrows(IllegalArgumentException.class,()->heap.decreaseKey(handles[8],1));
+        expectThrows(IllegalArgumentException.class,()->heap.delete(-1));
+        expectThrows(IllegalArgumentException.class,()->heap.decreaseKey(size,1));
+        if(heap.getKey(heap.findMin())!=0 || heap.size()!=6)
+            System.out.println("ERROR");
+        int last=Integer.MIN_VALUE;
+        while(!heap.isEmpty()){
+            if(heap.getKey(heap.findMin())<last)
+                System.out.println("ERROR");
+            last=heap.getKey(heap.findMin());
+            heap.deleteMin();
+        }
+    }
+
+    public static void checkEngines(){
+        checkQueue(FibonacciHeap::new);
+        checkQueue(FibonacciHeap.PairingHeap::new);
+        checkQueue(FibonacciHeap.RankPairingHeap::new);
+        checkQueue(FibonacciHeap.BinaryHeap::new);
+        checkQueue(FibonacciHeap.RadixHeap::new);
+        checkQueue(()->new FibonacciHeap(FibonacciHeap.Mode.MONOTONE));
+        checkMonotone(FibonacciHeap.RadixHeap::new);
+        checkMonotone(()->new FibonacciHeap(FibonacciHeap.Mode.MONOTONE));
+    }
+
+    static <H extends AddressablePriorityQueue.Handle, Q extends AddressablePriorityQueue<H,Q>> void checkMonotone(Supplier<Q> engine){
+        // findMin leaves the floor alone: only deleteMin moves it
+        Q queue=engine.get();
+        H ten=queue.insert(10);
+        queue.insert(20);
+        if(queue.findMin()!=ten)
+            System.out.println("ERROR");
+        H five=queue.insert(5);
+        if(queue.findMin()!=five)
+            System.out.println("ERROR");
+        queue.decreaseKey(ten,4);
+        queue.deleteMin();
+        if(queue.findMin()!=ten || queue.size()!=2)
+            System.out.println("ERROR");
+        expectThrows(IllegalArgumentException.class,()->queue.insert(4));
+        expectThrows(IllegalArgumentException.class,()->queue.decreaseKey(ten,2));
+        queue.insert(5);
+        int[] expected={5,6,20};
+        for(int key:expected){
+            if(queue.findMin().getKey()!=key)
+                System.out.println("ERROR");
+            queue.deleteMin();
+        }
+        if(!queue.isEmpty())
+            System.out.println("ERROR");
+    }
+
+    static <H extends AddressablePriorityQueue.Handle, Q extends AddressablePriorityQueue<H,Q>> void checkQueue(Supplier<Q> engine){
+        Q queue=engine.get();
+        int size=((int)Math.pow(2,3)+1);
+        List<H> handles=new ArrayList<>();
+        for(int i=0;i<size;i++){
+            handles.add(queue.insert(i+1));
+        }
+        queue.decreaseKey(handles.get(5),6);
+        queue.deleteMin();
+        queue.deleteMin();
+        // keys stay above the deleted minimum, so the monotone radix heap runs the same sequence
+        queue.decreaseKey(handles.get(3),2);
+        queue.delete(handles.get(8));
+        if(queue.findMin().getKey()!=2 || queue.size()!=6)
+            System.out.println("ERROR");
+        // removed handles and handles of another queue are rejected; a meld hands them over
+        expectThrows(IllegalArgumentException.class,()->queue.delete(handles.get(8)));
+        expectThrows(IllegalArgumentException.class,()->queue.decreaseKey(handles.get(0),0));
+        Q other=engine.get();
+        H foreign=other.insert(10);
+        expectThrows(IllegalArgumentException.class,()->queue.delete(foreign));
+        expectThrows(IllegalArgumentException.class,()->queue.decreaseKey(foreign,1));
+        if(queue.size()!=6 || other.size()!=1)
+            System.out.println("ERROR");
+        queue.meld(other);
+        expectThrows(IllegalArgumentException.class,()->other.delete(foreign));
+        queue.delete(foreign);
+        if(queue.findMin().getKey()!=2 || queue.size()!=6)
+            System.out.println("ERROR");
+        int last=Integer.MIN_VALUE;
+        while(!queue.isEmpty()){
+            if(queue.findMin().getKey()<last)
+                System.out.println("ERROR");
+            last=queue.findMin().getKey();
+            queue.deleteMin();
+        }
+    }
+
+    public static void checkGraph(){
+        // a 4-cycle 0-1-2-3 with the chord 0-2
+        FibonacciHeap.Graph graph=FibonacciHeap.Graph.fromEdges(5,
+                new int[]{0,1,2,3,0},new int[]{1,2,3,0,2},new int[]{1,2,1,4,4},true);
+        int[][] distances={graph.dijkstra(0,FibonacciHeap::new),
+                graph.dijkstra(0,FibonacciHeap.PairingHeap::new),
+                graph.dijkstra(0,FibonacciHeap.RankPairingHeap::new),
+                graph.dijkstra(0,FibonacciHeap.BinaryHeap::new),
+                graph.dijkstra(0,FibonacciHeap.RadixHeap::new)};
+        for(int[] distance:distances){
+            if(!Arrays.equals(distance,new int[]{0,1,3,4,Integer.MAX_VALUE}))
+                System.out.println("ERROR");
+        }
+        int[] parents=graph.prim(0,FibonacciHeap::new);
+        if(!Arrays.equals(parents,new int[]{-1,0,1,2,-1}))
+            System.out.println("ERROR");
+    }
+
+    public static void checkDeleteMinAllocation(){
+        com.sun.management.ThreadMXBean threads=
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread=Thread.currentThread().getId();
+        int n=1<<20;
+        FibonacciHeap heap=new FibonacciHeap();
+        Random random=new Random(1);
+        for(int i=0;i<n;i++){
+            heap.insert(random.nextInt());
+        }
+        // warm up, the first deleteMin sizes the rank table
+        for(int i=0;i<n/2;i++){
+            heap.deleteMin();
+        }
+        int ops=n/4;
+        long before=threads.getThreadAllocatedBytes(thread);
+        for(int i=0;i<ops;i++){
+            heap.deleteMin();
+        }
+        long allocated=threads.getThreadAllocatedBytes(thread)-before;
+        System.out.println("deleteMin bytes/op= "+((double)allocated/ops));
+        if(allocated>0)
+            System.out.println("ERROR");
+    }
+
+    public static void checkKMin() throws InterruptedException {
+        FibonacciHeap heap=new FibonacciHeap();
+        Random random=new Random(1);
+        int[] keys=new int[1000];
+        for(int i=0;i<keys.length;i++){
+            keys[i]=random.nextInt(100000);
+            heap.insert(keys[i]);
+        }
+        heap.insert(-1);
+        heap.deleteMin();
+        Arrays.sort(keys);
+        int[] expected=Arrays.copyOf(keys,100);
+
+        // a query from inside a query gets its own frontier
+        int[] inner=new int[10];
+        AtomicInteger seen=new AtomicInteger();
+        heap.kMin(20,key->{
+            if(key!=expected[seen.getAndIncrement()] || heap.kMin(10,inner)!=10 || !Arrays.equals(inner,Arrays.copyOf(expected,10)))
+                System.out.println("ERROR");
+        });
+        if(seen.get()!=20)
+            System.out.println("ERROR");
+
+        // concurrent queries of an unchanging heap
+        AtomicInteger errors=new AtomicInteger();
+        Thread[] readers=new Thread[4];
+        for(int t=0;t<readers.length;t++){
+            readers[t]=new Thread(()->{
+                int[] out=new int[100];
+                for(int i=0;i<500;i++){
+                    if(heap.kMin(100,out)!=100 || !Arrays.equals(out,expected))
+                        errors.incrementAndGet();
+                }
+            });
+            readers[t].start();
+        }
+        for(Thread reader:readers){
+            reader.join();
+        }
+        if(errors.get()!=0)
+            System.out.println("ERROR");
+
+        // the caller's frontier: no allocation once it has grown
+        com.sun.management.ThreadMXBean threads=
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread=Thread.currentThread().getId();
+        FibonacciHeap.NodeFrontier frontier=new FibonacciHeap.NodeFrontier();
+        int[] out=new int[100];
+        for(int i=0;i<10000;i++){
+            heap.kMin(100,out,frontier);
+        }
+        long before=threads.getThreadAllocatedBytes(thread);
+        for(int i=0;i<1000;i++){
+            heap.kMin(100,out,frontier);
+        }
+        long allocated=threads.getThreadAllocatedBytes(thread)-before;
+        if(allocated>0 || !Arrays.equals(out,expected) || heap.size()!=1000)
+            System.out.println("ERROR");
+    }
+
+    public static void checkMultiQueue(){
+        int n=100000;
+        for(int c=1;c<=4;c*=2){
+            FibonacciHeap.MultiQueue queue=new FibonacciHeap.MultiQueue(c,8);
+            for(int i=0;i<n;i++){
+                queue.insert((int)((i*7919L)%n));
+            }
+            // rank error of a removed key = number of smaller keys still queued, counted with a Fenwick tree
+            int[] tree=new int[n+1];
+            for(int i=1;i<=n;i++){
+                for(int j=i;j<=n;j+=j&-j)
+                    tree[j]++;
+            }
+            long[] histogram=new long[8];
+            long[] stats=new long[2];
+            queue.setDeleteMinListener(key->{
+                int smaller=0;
+                for(int j=key;j>0;j-=j&-j)
+                    smaller+=tree[j];
+                for(int j=key+1;j<=n;j+=j&-j)
+                    tree[j]--;
+                stats[0]+=smaller;
+                stats[1]=Math.max(stats[1],smaller);
+                histogram[Math.min(7,32-Integer.numberOfLeadingZeros(smaller))]++;
+            });
+            while(!queue.isEmpty()){
+                queue.deleteMin();
+            }
+            long total=stats[0];
+            long max=stats[1];
+            System.out.println("c="+c+" mean rank error= "+((double)total/n)+" max= "+max+
+                    " histogram(0,1,2-3,4-7,...)= "+Arrays.toString(histogram));
+        }
+    }
+
+    public static void checkKeyedHeaps(){
+        // the checkQueue sequence on long keys beyond the int range, with both payloads
+        FibonacciHeap.LongHeap<String> longs=new FibonacciHeap.LongHeap<>();
+        long base=1L<<40;
+        List<FibonacciHeap.LongHeap.Node<String>> nodes=new ArrayList<>();
+        for(int i=0;i<9;i++){
+            nodes.add(longs.insert(base+i+1,i,"n"+i));
+        }
+        longs.decreaseKey(nodes.get(5),6);
+        longs.deleteMin();
+        longs.deleteMin();
+        longs.decreaseKey(nodes.get(3),2);
+        longs.delete(nodes.get(8));
+        // a deleted node, or a node of another heap, is rejected and leaves the heap intact
+        expectThrows(IllegalArgumentException.class,()->longs.delete(nodes.get(8)));
+        expectThrows(IllegalArgumentException.class,()->longs.decreaseKey(nodes.get(0),1));
+        FibonacciHeap.LongHeap<String> stranger=new FibonacciHeap.LongHeap<>();
+        FibonacciHeap.LongHeap.Node<String> foreign=stranger.insert(0,0,"x");
+        expectThrows(IllegalArgumentException.class,()->longs.delete(foreign));
+        expectThrows(IllegalArgumentException.class,()->longs.decreaseKey(foreign,1));
+        if(stranger.size()!=1 || stranger.findMin()!=foreign)
+            System.out.println("ERROR");
+        // a negative delta would increase the key
+        expectThrows(IllegalArgumentException.class,()->longs.decreaseKey(nodes.get(3),-1));
+        expectThrows(IllegalArgumentException.class,()->longs.decreaseKey(nodes.get(3),Long.MIN_VALUE));
+        if(longs.findMin().getKey()!=base+2 || nodes.get(3).getKey()!=base+2 || nodes.get(3).getData()!=3 || !"n3".equals(nodes.get(3).getValue()) || longs.size()!=6)
+            System.out.println("ERROR");
+        long lastLong=Long.MIN_VALUE;
+        while(!longs.isEmpty()){
+            if(longs.findMin().getKey()<lastLong)
+                System.out.println("ERROR");
+            lastLong=longs.findMin().getKey();
+            longs.deleteMin();
+        }
+
+        // double keys, and a meld
+        FibonacciHeap.DoubleHeap<Void> doubles=new FibonacciHeap.DoubleHeap<>();
+        FibonacciHeap.DoubleHeap<Void> other=new FibonacciHeap.DoubleHeap<>();
+        for(int i=0;i<50;i++){
+            doubles.insert(i+0.5,i,null);
+            other.insert(i+0.25,-i,null);
+        }
+        FibonacciHeap.DoubleHeap.Node<Void> node=other.insert(100.0,7,null);
+        doubles.deleteMin();
+        doubles.meld(other);
+        doubles.decreaseKey(node,100.5);
+        // after the meld the node belongs to doubles only
+        expectThrows(IllegalArgumentException.class,()->other.delete(node));
+        if(!other.isEmpty() || doubles.size()!=100 || doubles.findMin()!=node || doubles.findMin().getData()!=7)
+            System.out.println("ERROR");
+        // negative and NaN deltas, and NaN keys, are rejected and leave the heap intact
+        FibonacciHeap.DoubleHeap.Node<Void> infinite=doubles.insert(Double.POSITIVE_INFINITY,null);
+        expectThrows(IllegalArgumentException.class,()->doubles.decreaseKey(node,-0.5));
+        expectThrows(IllegalArgumentException.class,()->doubles.decreaseKey(node,Double.NaN));
+        expectThrows(IllegalArgumentException.class,()->doubles.decreaseKey(infinite,Double.POSITIVE_INFINITY));
+        expectThrows(IllegalArgumentException.class,()->doubles.insert(Double.NaN,null));
+        expectThrows(IllegalArgumentException.class,()->doubles.insert(Double.NaN,0,null));
+        doubles.decreaseKey(node,0.0);
+        if(doubles.size()!=101 || doubles.findMin()!=node || node.getKey()!=-0.5 || infinite.getKey()!=Double.POSITIVE_INFINITY)
+            System.out.println("ERROR");
+        double lastDouble=Double.NEGATIVE_INFINITY;
+        while(!doubles.isEmpty()){
+            if(doubles.findMin().getKey()<lastDouble)
+                System.out.println("ERROR");
+            lastDouble=doubles.findMin().getKey();
+            doubles.deleteMin();
+        }
+
+        // object keys in the comparator's order; decreaseKey to a larger key is rejected
+        FibonacciHeap.ObjectHeap<String,Integer> strings=new FibonacciHeap.ObjectHeap<>(Comparator.reverseOrder());
+        FibonacciHeap.ObjectHeap.Node<String,Integer> b=strings.insert("b",1);
+        strings.insert("a",2);
+        strings.insert("c",3);
+        expectThrows(IllegalArgumentException.class,()->strings.decreaseKey(b,"a"));
+        strings.decreaseKey(b,"d");
+        StringBuilder order=new StringBuilder();
+        while(!strings.isEmpty()){
+            order.append(strings.findMin().getKey());
+            strings.deleteMin();
+        }
+        if(!order.toString().equals("dca"))
+            System.out.println("ERROR");
+    }
+
+    public static void checkConcurrentHeap() throws InterruptedException {
+        // threads insert, decrease, delete and deleteMin at once; every key must leave exactly once
+        int threads=4, n=20000;
+        FibonacciHeap.ConcurrentHeap heap=new FibonacciHeap.ConcurrentHeap(threads);
+        Set<FibonacciHeap.HeapNode> removed=ConcurrentHashMap.newKeySet();
+        AtomicInteger errors=new AtomicInteger();
+        Thread[] workers=new Thread[threads];
+        for(int t=0;t<threads;t++){
+            int seed=t;
+            workers[t]=new Thread(()->{
+                Random random=new Random(seed);
+                List<FibonacciHeap.ConcurrentHeap.Handle> handles=new ArrayList<>();
+                for(int i=0;i<n;i++){
+                    handles.add(heap.insert(1000+random.nextInt(1000000)));
+                    int op=random.nextInt(4);
+                    FibonacciHeap.ConcurrentHeap.Handle handle=handles.get(random.nextInt(handles.size()));
+                    try{
+                        if(op==0){
+                            heap.decreaseKey(handle,random.nextInt(1000));
+                        }
+                        else if(op==1){
+                            heap.delete(handle);
+                            if(!removed.add(handle))
+                                errors.incrementAndGet();
+                        }
+                    }
+                    catch(IllegalArgumentException e){
+                        // already removed by another thread's deleteMin, or by this thread
+                    }
+                    if(op==2){
+                        FibonacciHeap.HeapNode min=heap.deleteMin();
+                        if(min!=null && !removed.add(min))
+                            errors.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for(Thread worker:workers){
+            worker.join();
+        }
+        if(errors.get()!=0 || heap.size()!=threads*n-removed.size())
+            System.out.println("ERROR");
+        int last=Integer.MIN_VALUE;
+        for(FibonacciHeap.HeapNode min=heap.deleteMin();min!=null;min=heap.deleteMin()){
+            if(min.getKey()<last || !removed.add(min))
+                System.out.println("ERROR");
+            last=min.getKey();
+        }
+        if(removed.size()!=threads*n || !heap.isEmpty())
+            System.out.println("ERROR");
+
+        // a handle of another heap is rejected, and neither heap changes
+        FibonacciHeap.ConcurrentHeap x=new FibonacciHeap.ConcurrentHeap(2);
+        FibonacciHeap.ConcurrentHeap y=new FibonacciHeap.ConcurrentHeap(2);
+        FibonacciHeap.ConcurrentHeap.Handle handle=y.insert(1);
+        expectThrows(IllegalArgumentException.class,()->x.delete(handle));
+        expectThrows(IllegalArgumentException.class,()->x.decreaseKey(handle,1));
+        if(x.size()!=0 || y.size()!=1 || y.findMin()!=handle)
+            System.out.println("ERROR");
+        // after a meld the handle belongs to the receiving heap
+        x.meld(y);
+        expectThrows(IllegalArgumentException.class,()->y.delete(handle));
+        x.delete(handle);
+        if(!x.isEmpty() || !y.isEmpty())
+            System.out.println("ERROR");
+    }
+
+    public static void checkIds() throws IOException {
+        // nodes reached by id follow decreaseKey, delete and deleteMin
+        FibonacciHeap heap=new FibonacciHeap();
+        for(int i=0;i<20;i++){
+            heap.insertWithId(100+i,i);
+        }
+        heap.insert(50,7);
+        expectThrows(IllegalArgumentException.class,()->heap.insertWithId(105,0));
+        heap.decreaseKeyById(110,20);
+        if(heap.findMin()!=heap.getById(110) || heap.getById(110).getValue()!=110)
+            System.out.println("ERROR");
+        heap.deleteMin();
+        if(heap.containsId(110) || !heap.deleteById(101) || heap.deleteById(101) || heap.containsId(101))
+            System.out.println("ERROR");
+        expectThrows(IllegalArgumentException.class,()->heap.decreaseKeyById(101,1));
+        expectThrows(IllegalArgumentException.class,()->heap.decreaseKeyById(7,1));
+        if(heap.size()!=19 || heap.containsId(7))
+            System.out.println("ERROR");
+
+        // the id is the value while the node is indexed
+        FibonacciHeap.HeapNode node=heap.getById(102);
+        expectThrows(IllegalStateException.class,()->node.setValue(1));
+        heap.delete(node);
+        node.setValue(1);
+
+        // a meld moves the ids, and a clash leaves both heaps unchanged
+        FibonacciHeap other=new FibonacciHeap();
+        other.insertWithId(103,-1);
+        expectThrows(IllegalArgumentException.class,()->heap.meld(other));
+        if(other.size()!=1 || heap.getById(103).getKey()!=3)
+            System.out.println("ERROR");
+        other.deleteById(103);
+        other.insertWithId(500,-1);
+        heap.meld(other);
+        if(other.containsId(500) || heap.getById(500)!=heap.findMin() || heap.size()!=19)
+            System.out.println("ERROR");
+
+        // save and load keep the index
+        Path file=Files.createTempFile("heap",".snapshot");
+        try{
+            heap.save(file);
+            FibonacciHeap loaded=new FibonacciHeap();
+            loaded.load(file);
+            for(int id=100;id<120;id++){
+                if(heap.containsId(id)!=loaded.containsId(id)
+                        || (heap.containsId(id) && heap.getById(id).getKey()!=loaded.getById(id).getKey()))
+                    System.out.println("ERROR");
+            }
+            if(!loaded.containsId(500) || loaded.containsId(7))
+                System.out.println("ERROR");
+            loaded.decreaseKeyById(119,100);
+            loaded.deleteMin();
+            if(loaded.containsId(119) || loaded.size()!=18)
+                System.out.println("ERROR");
+        }
+        finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public static void checkDecreaseKeyBuffer() throws IOException {
+        // repeated decreases of one node are cut once, with the latest key
+        FibonacciHeap heap=new FibonacciHeap();
+        FibonacciHeap.HeapNode[] nodes=new FibonacciHeap.HeapNode[33];
+        for(int i=0;i<33;i++){
+            nodes[i]=heap.insert(i*10);
+        }
+        heap.deleteMin();
+        heap.setDecreaseKeyBuffering(true);
+        FibonacciHeap.HeapNode leaf=deepest(heap.findMin());
+        long cuts=heap.getMetrics().getCuts();
+        int trees=heap.getTrees();
+        heap.decreaseKey(leaf,1);
+        heap.decreaseKey(leaf,1);
+        heap.decreaseKey(leaf,leaf.getKey()-5);
+        if(heap.findMin()!=leaf || heap.getMetrics().getCuts()!=cuts)
+            System.out.println("ERROR");
+
+        // kMin and sortedIterator read around the buffer without cutting
+        int[] smallest=FibonacciHeap.kMin(heap,4);
+        PrimitiveIterator.OfInt iterator=heap.sortedIterator();
+        int last=Integer.MIN_VALUE;
+        for(int i=0;i<32;i++){
+            int key=iterator.nextInt();
+            if(key<last || (i<4 && key!=smallest[i]))
+                System.out.println("ERROR");
+            last=key;
+        }
+        if(!Arrays.equals(smallest,new int[]{5,10,20,30}) || heap.getTrees()!=trees || heap.getMetrics().getCuts()!=cuts)
+            System.out.println("ERROR");
+
+        // deleteMin flushes the buffer first: a single cut
+        heap.deleteMin();
+        if(heap.getMetrics().getCuts()!=cuts+1 || heap.findMin().getKey()!=10)
+            System.out.println("ERROR");
+
+        // meld, save and extractRange flush as well
+        heap.decreaseKey(deepest(heap.findMin()),1000);
+        FibonacciHeap other=new FibonacciHeap();
+        other.setDecreaseKeyBuffering(true);
+        other.insert(0);
+        other.insert(1);
+        other.insert(2);
+        other.deleteMin();
+        other.decreaseKey(other.findMin().getChild(),3);
+        heap.meld(other);
+        Path file=Files.createTempFile("heap",".snapshot");
+        try{
+            heap.decreaseKey(deepest(heap.findMin()),500);
+            heap.save(file);
+            FibonacciHeap loaded=new FibonacciHeap();
+            loaded.load(file);
+            checkSorted(loaded,heap.size());
+        }
+        finally{
+            Files.deleteIfExists(file);
+        }
+        heap.decreaseKey(deepest(heap.findMin()),2000);
+        int expected=0;
+        for(int key:FibonacciHeap.kMin(heap,heap.size())){
+            if(key>=100 && key<=200)
+                expected++;
+        }
+        if(heap.extractRange(100,200,key->{})!=expected || expected==0)
+            System.out.println("ERROR");
+        checkSorted(heap,heap.size());
+
+        // a child decreased, then its parent decreased below it: one cut buffered, two unbuffered
+        if(parentAndChildCuts(true)!=1 || parentAndChildCuts(false)!=2)
+            System.out.println("ERROR");
+
+        // a buffered minimum whose key ties its parent's is still cut to the root list
+        FibonacciHeap ties=new FibonacciHeap();
+        ties.setDecreaseKeyBuffering(true);
+        for(int key=10;key<=50;key+=10){
+            ties.insert(key);
+        }
+        ties.deleteMin();
+        FibonacciHeap.HeapNode tiedParent=ties.findMin();
+        FibonacciHeap.HeapNode tiedChild=tiedParent.getChild();
+        while(tiedChild.getKey()!=30){
+            tiedChild=tiedChild.getNext();
+        }
+        ties.decreaseKey(tiedChild,25);
+        ties.decreaseKey(tiedParent,15);
+        ties.deleteMin();
+        if(ties.findMin()!=tiedParent || tiedParent.getRank()!=1 || !Arrays.equals(ties.countersRep(),new int[]{0,1}))
+            System.out.println("ERROR");
+        checkSorted(ties,3);
+    }
+
+    static FibonacciHeap.HeapNode deepest(FibonacciHeap.HeapNode node){
+        while(node.getChild()!=null){
+            node=node.getChild();
+        }
+        return node;
+    }
+
+    static void checkSorted(FibonacciHeap heap,int size){
+        int last=Integer.MIN_VALUE;
+        for(int i=0;i<size;i++){
+            if(heap.findMin().getKey()<last)
+                System.out.println("ERROR");
+            last=heap.findMin().getKey();
+            heap.deleteMin();
+        }
+        if(!heap.isEmpty())
+            System.out.println("ERROR");
+    }
+
+    static long parentAndChildCuts(boolean buffered){
+        FibonacciHeap heap=new FibonacciHeap();
+        for(int i=0;i<9;i++){
+            heap.insert(i*10);
+        }
+        heap.deleteMin();
+        heap.setDecreaseKeyBuffering(buffered);
+        FibonacciHeap.HeapNode root=heap.findMin();
+        FibonacciHeap.HeapNode parent=root.getChild();
+        while(parent.getChild()==null){
+            parent=parent.getNext();
+        }
+        FibonacciHeap.HeapNode child=parent.getChild();
+        long cuts=heap.getMetrics().getCuts();
+        heap.decreaseKey(child,child.getKey()-parent.getKey()+1);
+        heap.decreaseKey(parent,parent.getKey()-root.getKey()+1);
+        heap.deleteMin();
+        return heap.getMetrics().getCuts()-cuts;
+    }
+
+    public static void checkTimerService() throws InterruptedException {
+        // schedule, cancel and reschedule: the rescheduled timer fires first, the cancelled one never
+        Queue<Integer> fired=new ConcurrentLinkedQueue<>();
+        CountDownLatch done=new CountDownLatch(2);
+        try(FibonacciHeap.TimerService service=new FibonacciHeap.TimerService(Runnable::run)){
+            FibonacciHeap.TimerService.Timer first=service.schedule(()->{fired.add(1);done.countDown();},100,TimeUnit.MILLISECONDS);
+            FibonacciHeap.TimerService.Timer second=service.schedule(()->fired.add(2),150,TimeUnit.MILLISECONDS);
+            FibonacciHeap.TimerService.Timer third=service.schedule(()->{fired.add(3);done.countDown();},200,TimeUnit.MILLISECONDS);
+            if(!service.cancel(second) || service.cancel(second) || !service.reschedule(third,System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(20)))
+                System.out.println("ERROR");
+            if(!done.await(5,TimeUnit.SECONDS))
+                System.out.println("ERROR");
+            Thread.sleep(100);
+            if(!new ArrayList<>(fired).equals(Arrays.asList(3,1)) || service.size()!=0 || service.reschedule(first,0))
+                System.out.println("ERROR");
+
+            // batched expiry: timers due together all fire
+            CountDownLatch batch=new CountDownLatch(100);
+            long deadline=System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(20);
+            for(int i=0;i<100;i++){
+                service.scheduleAt(batch::countDown,deadline);
+            }
+            if(!batch.await(5,TimeUnit.SECONDS))
+                System.out.println("ERROR");
+
+            // a delay near Long.MAX_VALUE neither overflows past nor starves the shorter timers
+            CountDownLatch shorter=new CountDownLatch(2);
+            FibonacciHeap.TimerService.Timer never=service.schedule(()->System.out.println("ERROR"),Long.MAX_VALUE,TimeUnit.NANOSECONDS);
+            service.schedule(()->System.out.println("ERROR"),Long.MAX_VALUE,TimeUnit.DAYS);
+            service.schedule(shorter::countDown,10,TimeUnit.MILLISECONDS);
+            service.scheduleAt(shorter::countDown,System.nanoTime()-1);
+            if(!shorter.await(5,TimeUnit.SECONDS) || service.size()!=2 || !service.cancel(never))
+                System.out.println("ERROR");
+        }
+
+        // a rejected task is reported and dropped, and the ticker keeps going
+        AtomicInteger calls=new AtomicInteger();
+        AtomicInteger reported=new AtomicInteger();
+        CountDownLatch ran=new CountDownLatch(1);
+        Executor rejecting=task->{
+            if(calls.getAndIncrement()==0)
+                throw new RejectedExecutionException();
+            task.run();
+        };
+        try(FibonacciHeap.TimerService service=new FibonacciHeap.TimerService(rejecting,(thread,e)->reported.incrementAndGet())){
+            service.schedule(()->System.out.println("ERROR"),10,TimeUnit.MILLISECONDS);
+            service.schedule(ran::countDown,50,TimeUnit.MILLISECONDS);
+            if(!ran.await(5,TimeUnit.SECONDS) || reported.get()!=1)
+                System.out.println("ERROR");
+        }
+    }
+
+    public static void checkIncreaseKey(){
+        FibonacciHeap heap=new FibonacciHeap();
+        FibonacciHeap.HeapNode[] nodes=new FibonacciHeap.HeapNode[100];
+        for(int i=0;i<100;i++){
+            nodes[i]=heap.insert(i);
+        }
+        heap.deleteMin();
+
+        // a node with children, a leaf and the minimum move up; bad deltas change nothing
+        FibonacciHeap.HeapNode root=heap.findMin();
+        while(root.getRank()<2){
+            root=root.getNext();
+        }
+        FibonacciHeap.HeapNode parent=root.getChild();
+        while(parent.getChild()==null){
+            parent=parent.getNext();
+        }
+        FibonacciHeap.HeapNode leaf=deepest(parent);
+        Set<Integer> moved=new HashSet<>(Arrays.asList(1,parent.getKey(),leaf.getKey()));
+        heap.increaseKey(parent,1000);
+        heap.increaseKey(leaf,2000);
+        heap.increaseKey(nodes[1],3000);
+        if(nodes[1].getKey()!=3001 || heap.findMin()==nodes[1] || !moved.contains(parent.getKey()-1000) || !moved.contains(leaf.getKey()-2000))
+            System.out.println("ERROR");
+        expectThrows(IllegalArgumentException.class,()->heap.increaseKey(nodes[50],-1));
+        expectThrows(ArithmeticException.class,()->heap.increaseKey(nodes[50],Integer.MAX_VALUE));
+        if(nodes[50].getKey()!=50 || heap.size()!=99)
+            System.out.println("ERROR");
+
+        // extractRange takes lo and hi inclusive, including the minimum, and keeps the pruned subtrees
+        Set<Integer> taken=new HashSet<>();
+        int count=heap.extractRange(2,20,taken::add);
+        Set<Integer> expected=new HashSet<>();
+        for(int key=2;key<=20;key++){
+            if(!moved.contains(key))
+                expected.add(key);
+        }
+        int min=21;
+        while(moved.contains(min)){
+            min++;
+        }
+        if(count!=expected.size() || !taken.equals(expected) || heap.findMin().getKey()!=min)
+            System.out.println("ERROR");
+        if(heap.extractRange(5000,6000,key->System.out.println("ERROR"))!=0 || heap.extractRange(30,29,key->System.out.println("ERROR"))!=0)
+            System.out.println("ERROR");
+        checkSorted(heap,99-count);
+
+        // MONOTONE mode moves the node to the bucket of its new key, and has no extractRange
+        FibonacciHeap monotone=new FibonacciHeap(FibonacciHeap.Mode.MONOTONE);
+        FibonacciHeap.HeapNode five=monotone.insert(5);
+        monotone.insert(10);
+        monotone.insert(15);
+        monotone.findMin();
+        monotone.increaseKey(five,20);
+        if(monotone.findMin().getKey()!=10)
+            System.out.println("ERROR");
+        expectThrows(UnsupportedOperationException.class,()->monotone.extractRange(0,100,key->{}));
+        checkSorted(monotone,3);
+    }
+
+    public static void checkMetrics() throws JMException, InterruptedException {
+        // 8 single roots consolidate into one binomial tree of rank 3 with 7 links
+        int totalLinks=FibonacciHeap.totalLinks();
+        int totalCuts=FibonacciHeap.totalCuts();
+        FibonacciHeap heap=new FibonacciHeap();
+        for(int key=1;key<=9;key++){
+            heap.insert(key*10);
+        }
+        heap.deleteMin();
+        FibonacciHeap.HeapMetrics metrics=heap.getMetrics();
+        if(metrics.getLinks()!=7 || metrics.getConsolidations()!=1 || metrics.getMaxRank()!=3 || metrics.getCuts()!=0
+                || metrics.getSize()!=8 || metrics.getTrees()!=1 || metrics.getMarked()!=0 || metrics.getPotential()!=1)
+            System.out.println("ERROR");
+
+        // down the widest path root > q (rank 2) > p (rank 1) > leaf: cutting the leaf marks p, cutting p
+        // marks q, and cutting q's other child cascades into q
+        FibonacciHeap.HeapNode root=heap.findMin();
+        FibonacciHeap.HeapNode q=widest(root.getChild());
+        FibonacciHeap.HeapNode p=widest(q.getChild());
+        FibonacciHeap.HeapNode r=p.getNext();
+        FibonacciHeap.HeapNode leaf=p.getChild();
+        heap.decreaseKey(leaf,leaf.getKey()-root.getKey()-1);
+        if(metrics.getCuts()!=1 || metrics.getMaxCascadeDepth()!=1 || metrics.getMarked()!=1)
+            System.out.println("ERROR");
+        heap.decreaseKey(p,p.getKey()-root.getKey()-2);
+        heap.decreaseKey(r,r.getKey()-root.getKey()-3);
+        if(metrics.getCuts()!=4 || metrics.getMaxCascadeDepth()!=2 || metrics.getMarked()!=0 || metrics.getTrees()!=5
+                || metrics.getPotential()!=5 || metrics.getLinks()!=7)
+            System.out.println("ERROR");
+        if(FibonacciHeap.totalLinks()-totalLinks!=7 || FibonacciHeap.totalCuts()-totalCuts!=4)
+            System.out.println("ERROR");
+
+        // the same values through JMX; a name can be registered once
+        MBeanServer server=ManagementFactory.getPlatformMBeanServer();
+        ObjectName name=metrics.register("checkMetrics");
+        try{
+            if(!name.equals(new ObjectName("FibonacciHeap:name=\"checkMetrics\""))
+                    || !Long.valueOf(4).equals(server.getAttribute(name,"Cuts")) || !Long.valueOf(7).equals(server.getAttribute(name,"Links"))
+                    || !Integer.valueOf(5).equals(server.getAttribute(name,"Trees")) || !Integer.valueOf(8).equals(server.getAttribute(name,"Size")))
+                System.out.println("ERROR");
+            try{
+                metrics.register("checkMetrics");
+                System.out.println("ERROR");
+            }
+            catch(InstanceAlreadyExistsException e){
+            }
+        }
+        finally{
+            server.unregisterMBean(name);
+        }
+
+        // counts recorded from several threads at once are not lost
+        FibonacciHeap.HeapMetrics shared=new FibonacciHeap().getMetrics();
+        Thread[] threads=new Thread[4];
+        CountDownLatch start=new CountDownLatch(1);
+        for(int t=0;t<threads.length;t++){
+            int depth=t+1;
+            threads[t]=new Thread(()->{
+                try{
+                    start.await();
+                }
+                catch(InterruptedException e){
+                    return;
+                }
+                for(int i=0;i<1000000;i++){
+                    shared.recordCascade(depth);
+                    shared.recordConsolidation(1,depth);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for(Thread thread:threads){
+            thread.join();
+        }
+        if(shared.getCuts()!=10000000 || shared.getLinks()!=4000000 || shared.getConsolidations()!=4000000 || shared.getMaxCascadeDepth()!=4)
+            System.out.println("ERROR");
+    }
+
+    public static void checkDrainMin(){
+        Random random=new Random(9);
+        FibonacciHeap heap=new FibonacciHeap();
+        FibonacciHeap.HeapNode[] nodes=new FibonacciHeap.HeapNode[200];
+        for(int i=0;i<nodes.length;i++){
+            nodes[i]=heap.insert(random.nextInt(100));
+        }
+        heap.deleteMin();
+        for(int i=0;i<40;i++){
+            FibonacciHeap.HeapNode node=nodes[random.nextInt(nodes.length)];
+            if(node.getParent()!=null && node.getKey()>=10){
+                heap.decreaseKey(node,10);
+            }
+        }
+        // a reference with the same keys, drained by deleteMin
+        FibonacciHeap reference=new FibonacciHeap();
+        reference.insertAll(FibonacciHeap.kMin(heap,heap.size()));
+
+        // k == 0 and a negative k drain nothing, even into an empty array
+        int size=heap.size();
+        if(heap.drainMin(0,new int[0])!=0 || heap.drainMin(-3,new int[0])!=0 || heap.size()!=size)
+            System.out.println("ERROR");
+        expectThrows(IllegalArgumentException.class,()->heap.drainMin(10,new int[9]));
+
+        // a partial drain: the same keys as deleteMin, and a consolidated heap that goes on working
+        int[] out=new int[50];
+        if(heap.drainMin(50,out)!=50)
+            System.out.println("ERROR");
+        for(int key:out){
+            if(key!=reference.findMin().getKey())
+                System.out.println("ERROR");
+            reference.deleteMin();
+        }
+        int[] counters=heap.countersRep();
+        int trees=0;
+        for(int count:counters){
+            if(count>1)
+                System.out.println("ERROR");
+            trees+=count;
+        }
+        int marked=0;
+        for(FibonacciHeap.HeapNode node:nodes){
+            if(node.isMarked())
+                marked++;
+        }
+        if(heap.size()!=size-50 || heap.getTrees()!=trees || heap.getMarked()!=marked || heap.findMin().getKey()!=reference.findMin().getKey())
+            System.out.println("ERROR");
+        int drained=0;
+        for(FibonacciHeap.HeapNode node:nodes){
+            if(node.getKey()<out[49]){
+                expectThrows(IllegalArgumentException.class,()->heap.decreaseKey(node,1));
+                drained++;
+            }
+        }
+        FibonacciHeap.HeapNode rest=heap.findMin();
+        heap.decreaseKey(rest,1000);
+        reference.decreaseKey(reference.findMin(),1000);
+        if(drained==0 || heap.findMin()!=rest)
+            System.out.println("ERROR");
+
+        // k above the size drains the rest
+        int[] all=new int[heap.size()+10];
+        if(heap.drainMin(all.length,all)!=size-50 || !heap.isEmpty() || heap.getTrees()!=0 || heap.findMin()!=null)
+            System.out.println("ERROR");
+        for(int i=0;i<size-50;i++){
+            if(all[i]!=reference.findMin().getKey())
+                System.out.println("ERROR");
+            reference.deleteMin();
+        }
+        if(heap.drainMin(5,all)!=0)
+            System.out.println("ERROR");
+
+        // MONOTONE mode drains through deleteMin
+        FibonacciHeap monotone=new FibonacciHeap(FibonacciHeap.Mode.MONOTONE);
+        monotone.insertAll(new int[]{40,10,30,20});
+        int[] first=new int[2];
+        if(monotone.drainMin(2,first)!=2 || first[0]!=10 || first[1]!=20 || monotone.findMin().getKey()!=30)
+            System.out.println("ERROR");
+    }
+
+    public static void checkParallelConsolidation(){
+        Random random=new Random(13);
+        int[] keys=new int[20000];
+        for(int i=0;i<keys.length;i++){
+            keys[i]=random.nextInt(1000000);
+        }
+        ForkJoinPool pool=new ForkJoinPool(4);
+        try{
+            // every consolidation on the pool (20000 roots split into ranges of 4096), or on the common
+            // pool past 10000 roots: the ranks, links and drain order of sequential consolidation
+            for(int minTrees:new int[]{1,10000}){
+                FibonacciHeap parallel=new FibonacciHeap();
+                parallel.setParallelConsolidation(minTrees==1?pool:null,minTrees);
+                FibonacciHeap sequential=new FibonacciHeap();
+                parallel.insertAll(keys);
+                sequential.insertAll(keys);
+                parallel.deleteMin();
+                sequential.deleteMin();
+                if(parallel.getTrees()!=sequential.getTrees() || parallel.getMetrics().getLinks()!=sequential.getMetrics().getLinks()
+                        || !Arrays.equals(parallel.countersRep(),sequential.countersRep()))
+                    System.out.println("ERROR");
+                if(checkTrees(parallel)!=parallel.size())
+                    System.out.println("ERROR");
+                for(int i=0;i<1000;i++){
+                    if(parallel.findMin().getKey()!=sequential.findMin().getKey())
+                        System.out.println("ERROR");
+                    parallel.deleteMin();
+                    sequential.deleteMin();
+                }
+                if(checkTrees(parallel)!=parallel.size() || !Arrays.equals(parallel.countersRep(),sequential.countersRep()))
+                    System.out.println("ERROR");
+                checkSorted(parallel,parallel.size());
+            }
+            if(pool.getPoolSize()==0)
+                System.out.println("ERROR");
+        }
+        finally{
+            pool.shutdown();
+        }
+        expectThrows(IllegalArgumentException.class,()->new FibonacciHeap().setParallelConsolidation(null,0));
+    }
+
+    /**
+     * Checks the trees of the heap (parent links, circular sibling lists, ranks and heap order) and
+     * returns the number of their nodes.
+     */
+    static int checkTrees(FibonacciHeap heap){
+        return heap.isEmpty()?0:checkRing(heap.getFirst(),null);
+    }
+
+    static int checkRing(FibonacciHeap.HeapNode first,FibonacciHeap.HeapNode parent){
+        int count=0;
+        FibonacciHeap.HeapNode node=first;
+        do{
+            if(node.getParent()!=parent || node.getNext().getPrev()!=node || (parent!=null && node.getKey()<parent.getKey()))
+                System.out.println("ERROR");
+            int children=0;
+            FibonacciHeap.HeapNode child=node.getChild();
+            if(child!=null){
+                FibonacciHeap.HeapNode next=child;
+                do{
+                    children++;
+                    next=next.getNext();
+                }while(next!=child);
+                count+=checkRing(child,node);
+            }
+            if(children!=node.getRank())
+                System.out.println("ERROR");
+            count++;
+            node=node.getNext();
+        }while(node!=first);
+        return count;
+    }
+
+    public static void checkInsertAll(){
+        Random random=new Random(8);
+        int[] keys=new int[100];
+        for(int i=0;i<keys.length;i++){
+            keys[i]=random.nextInt(50)-25;
+        }
+        // into an empty heap and into one holding a few keys, with and without consolidation: the size,
+        // minimum and drain order of repeated inserts, one tree per key (one per set bit of the size once
+        // consolidated), and working handles in the order of the keys
+        for(int start=0;start<2;start++){
+            for(boolean consolidate:new boolean[]{false,true}){
+                FibonacciHeap bulk=new FibonacciHeap();
+                FibonacciHeap single=new FibonacciHeap();
+                for(int i=0;i<3*start;i++){
+                    bulk.insert(100*i-10);
+                    single.insert(100*i-10);
+                }
+                FibonacciHeap.HeapNode[] nodes=bulk.insertAll(keys,consolidate);
+                FibonacciHeap.HeapNode[] singles=new FibonacciHeap.HeapNode[keys.length];
+                for(int i=0;i<keys.length;i++){
+                    singles[i]=single.insert(keys[i]);
+                }
+                if(nodes.length!=keys.length || bulk.size()!=single.size() || bulk.findMin().getKey()!=single.findMin().getKey())
+                    System.out.println("ERROR");
+                if(bulk.getTrees()!=(consolidate?Integer.bitCount(bulk.size()):single.getTrees()))
+                    System.out.println("ERROR");
+                Set<FibonacciHeap.HeapNode> distinct=new HashSet<>(Arrays.asList(nodes));
+                for(int i=0;i<keys.length;i++){
+                    if(nodes[i].getKey()!=keys[i])
+                        System.out.println("ERROR");
+                }
+                if(distinct.size()!=keys.length)
+                    System.out.println("ERROR");
+                // the handles belong to the heap
+                expectThrows(IllegalArgumentException.class,()->single.delete(nodes[0]));
+                bulk.decreaseKey(nodes[7],1000);
+                single.decreaseKey(singles[7],1000);
+                bulk.delete(nodes[3]);
+                single.delete(singles[3]);
+                while(!single.isEmpty()){
+                    if(bulk.findMin().getKey()!=single.findMin().getKey())
+                        System.out.println("ERROR");
+                    bulk.deleteMin();
+                    single.deleteMin();
+                }
+                if(!bulk.isEmpty())
+                    System.out.println("ERROR");
+            }
+        }
+
+        // no keys change nothing; a stream and a MONOTONE heap take the same path as repeated inserts
+        FibonacciHeap heap=new FibonacciHeap();
+        heap.insert(5);
+        if(heap.insertAll(new int[0]).length!=0 || heap.insertAll(new int[0],true).length!=0 || heap.size()!=1 || heap.getTrees()!=1)
+            System.out.println("ERROR");
+        FibonacciHeap.HeapNode[] streamed=heap.insertAll(IntStream.of(3,9,1));
+        if(streamed.length!=3 || streamed[0].getKey()!=3 || streamed[2]!=heap.findMin() || heap.size()!=4)
+            System.out.println("ERROR");
+        FibonacciHeap monotone=new FibonacciHeap(FibonacciHeap.Mode.MONOTONE);
+        FibonacciHeap.HeapNode[] buckets=monotone.insertAll(new int[]{30,10,20},true);
+        if(buckets.length!=3 || buckets[1]!=monotone.findMin() || monotone.size()!=3)
+            System.out.println("ERROR");
+        checkSorted(monotone,3);
+    }
+
+    public static void checkCutBudget(){
+        // with a budget of one cut, the rest of a cascade is finished before the next consolidation:
+        // increaseKey and extractRange of the minimum and insertAll then leave the marks, ranks and
+        // order of an unbudgeted heap
+        for(int op=0;op<3;op++){
+            FibonacciHeap budgeted=markedChain(1);
+            FibonacciHeap reference=markedChain(Integer.MAX_VALUE);
+            if(budgeted.getMarked()==reference.getMarked())
+                System.out.println("ERROR");
+            for(FibonacciHeap heap:new FibonacciHeap[]{budgeted,reference}){
+                FibonacciHeap.HeapNode min=heap.findMin();
+                if(op==0)
+                    heap.increaseKey(min,10000);
+                else if(op==1)
+                    heap.extractRange(min.getKey(),min.getKey(),key->{});
+                else
+                    heap.insertAll(new int[]{10001,10002,10003},true);
+            }
+            if(budgeted.getMarked()!=reference.getMarked() || budgeted.getTrees()!=reference.getTrees()
+                    || !Arrays.equals(budgeted.countersRep(),reference.countersRep()))
+                System.out.println("ERROR");
+            while(!reference.isEmpty()){
+                if(budgeted.findMin().getKey()!=reference.findMin().getKey())
+                    System.out.println("ERROR");
+                budgeted.deleteMin();
+                reference.deleteMin();
+            }
+            if(!budgeted.isEmpty())
+                System.out.println("ERROR");
+        }
+        expectThrows(IllegalArgumentException.class,()->new FibonacciHeap().setCutBudget(0));
+    }
+
+    /**
+     * A single tree of rank 6 whose widest path is marked down to the node of rank 2, then the node
+     * of rank 1 below it decreased: the cascade runs up the whole path, or stops at the budget.
+     */
+    static FibonacciHeap markedChain(int budget){
+        FibonacciHeap heap=new FibonacciHeap();
+        heap.setCutBudget(budget);
+        for(int i=0;i<=64;i++){
+            heap.insert(i*10);
+        }
+        heap.deleteMin();
+        FibonacciHeap.HeapNode root=heap.findMin();
+        FibonacciHeap.HeapNode node=widest(root.getChild());
+        int depth=1;
+        while(node.getRank()>1){
+            FibonacciHeap.HeapNode next=widest(node.getChild());
+            FibonacciHeap.HeapNode other=next.getNext();
+            heap.decreaseKey(other,other.getKey()-root.getKey()-depth++);
+            node=next;
+        }
+        heap.decreaseKey(node,node.getKey()-root.getKey()-depth);
+        return heap;
+    }
+
+    static FibonacciHeap.HeapNode widest(FibonacciHeap.HeapNode child){
+        FibonacciHeap.HeapNode widest=child;
+        for(FibonacciHeap.HeapNode node=child.getNext();node!=child;node=node.getNext()){
+            if(node.getRank()>widest.getRank())
+                widest=node;
+        }
+        return widest;
+    }
+
+    public static void checkJournal() throws IOException {
+        Path dir=Files.createTempDirectory("journal");
+        FibonacciHeap.JournaledHeap crashed=null;
+        try{
+            // ids stay with their nodes across a checkpoint, and the ids of removed nodes are reused
+            try(FibonacciHeap.JournaledHeap heap=new FibonacciHeap.JournaledHeap(dir,1,1000)){
+                for(int i=0;i<100;i++){
+                    heap.insert(i);
+                }
+                for(int i=0;i<90;i++){
+                    heap.deleteMin();
+                }
+                heap.checkpoint();
+                for(int id=90;id<100;id++){
+                    if(heap.getNode(id)==null || heap.getNode(id).getKey()!=id)
+                        System.out.println("ERROR");
+                }
+                // a negative delta is rejected before it reaches the log
+                expectThrows(IllegalArgumentException.class,()->heap.decreaseKey(heap.getNode(95),-1));
+                if(heap.getNode(95).getKey()!=95 || heap.getNode(0)!=null || heap.insert(5).getValue()!=89)
+                    System.out.println("ERROR");
+            }
+
+            // a crash: the heap is abandoned without close, and a new one recovers from the files
+            crashed=new FibonacciHeap.JournaledHeap(dir,1,1000);
+            if(crashed.getNode(89).getKey()!=5 || crashed.getNode(95).getKey()!=95)
+                System.out.println("ERROR");
+            crashed.decreaseKey(crashed.getNode(89),5);
+            crashed.delete(crashed.getNode(93));
+            List<Integer> committed=journalKeys(crashed);
+            crashed.insert(7);
+            List<Integer> all=journalKeys(crashed);
+            if(committed.get(0)!=0 || all.size()!=11)
+                System.out.println("ERROR");
+            try(FibonacciHeap.JournaledHeap heap=new FibonacciHeap.JournaledHeap(dir,1,1000)){
+                if(!journalKeys(heap).equals(all))
+                    System.out.println("ERROR");
+            }
+
+            // a torn last record (the insert of 7) is dropped
+            Path log=dir.resolve("heap.log");
+            flipBit(log,16+3*16+8);
+            try(FibonacciHeap.JournaledHeap heap=new FibonacciHeap.JournaledHeap(dir,1,1000)){
+                if(!journalKeys(heap).equals(committed))
+                    System.out.println("ERROR");
+            }
+
+            // a bad record followed by others is corruption
+            flipBit(log,16+1*16+4);
+            try{
+                new FibonacciHeap.JournaledHeap(dir,1,1000).close();
+                System.out.println("ERROR: no IOException");
+            }
+            catch(IOException e){
+                // expected
+            }
+        }
+        finally{
+            if(crashed!=null)
+                crashed.close();
+            try(Stream<Path> files=Files.list(dir)){
+                for(Path file:(Iterable<Path>)files::iterator){
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    static List<Integer> journalKeys(FibonacciHeap.JournaledHeap heap){
+        List<Integer> keys=new ArrayList<>();
+        for(int id=0;keys.size()<heap.size();id++){
+            if(heap.getNode(id)!=null)
+                keys.add(heap.getNode(id).getKey());
+        }
+        keys.sort(null);
+        return keys;
+    }
+
+    static void flipBit(Path file,long position) throws IOException {
+        try(FileChannel channel=FileChannel.open(file,StandardOpenOption.READ,StandardOpenOption.WRITE)){
+            ByteBuffer buffer=ByteBuffer.allocate(1);
+            channel.read(buffer,position);
+            buffer.put(0,(byte)(buffer.get(0)^1));
+            buffer.rewind();
+            channel.write(buffer,position);
+        }
+    }
+
+    static void expectThrows(Class<? extends RuntimeException> type, Runnable action){
+        try{
+            action.run();
+            System.out.println("ERROR: no "+type.getSimpleName());
+        }
+        catch(RuntimeException e){
+            if(!type.isInstance(e))
+                System.out.println("ERROR: "+e);
+        }
+    }
+
     public static void main(String[] args) {
         //manyTesters();
     }
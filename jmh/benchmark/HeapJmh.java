@@ -0,0 +1,105 @@
+package benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * HeapJmh
+ *
+ * The HeapBenchmark suite under JMH. Every benchmark of HeapBenchmark.benches() is one value of the
+ * bench parameter; as in HeapBenchmark, setup() builds the state before each iteration and one
+ * invocation of run() is one measured round, so the mode is SingleShotTime with WARMUP and ROUNDS
+ * iterations. Times and the GC profiler's gc.alloc.rate.norm are per round: divide by n for the
+ * cost per operation (kMin, extractRange, rangeDelete and burst count n / KMIN, n / 2, n / 2 and BURST * n).
+ *
+ * JMH refuses benchmarks in the default package, where the heaps live, so the benches are reached
+ * through method handles, looked up once per trial and outside of the measurement.
+ *
+ * Usage: mvn -B test-compile exec:exec [-Djmh.args="-p bench=fibonacci.decreaseKey,pairing.decreaseKey -p n=100000 -prof gc"]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HeapJmh {
+    static final MethodType BENCH = MethodType.methodType(void.class, Object.class, int[].class);
+
+    @Param({"fibonacci.insert", "fibonacci.insertAll", "fibonacci.findMin", "fibonacci.deleteMin", "fibonacci.drainMin",
+            "fibonacci.decreaseKey", "fibonacci.burst", "fibonacci.burstBuffer", "fibonacci.delete", "fibonacci.increaseKey",
+            "fibonacci.deleteInsert", "fibonacci.extractRange", "fibonacci.rangeDelete", "fibonacci.meld", "fibonacci.kMin",
+            "array.insert", "array.deleteMin", "array.decreaseKey", "array.delete",
+            "pairing.insert", "pairing.deleteMin", "pairing.decreaseKey", "pairing.delete", "pairing.meld",
+            "rankPairing.insert", "rankPairing.deleteMin", "rankPairing.decreaseKey", "rankPairing.delete", "rankPairing.meld",
+            "binary.insert", "binary.deleteMin", "binary.decreaseKey", "binary.delete", "binary.meld",
+            "radix.insert", "radix.deleteMin", "radix.decreaseKey", "radix.delete", "radix.meld",
+            "monotone.insert", "monotone.deleteMin", "monotone.decreaseKey", "monotone.delete", "monotone.meld",
+            "priorityQueue.insert", "priorityQueue.findMin", "priorityQueue.deleteMin", "priorityQueue.meld",
+            "timer.schedule", "timer.cancel", "scheduledPool.schedule", "scheduledPool.cancel",
+            "fibonacci.dijkstra", "fibonacci.prim", "pairing.dijkstra", "pairing.prim", "rankPairing.dijkstra",
+            "rankPairing.prim", "binary.dijkstra", "binary.prim", "radix.dijkstra", "monotone.dijkstra"})
+    String bench;
+
+    @Param({"sorted", "reverse", "random", "adversarial"})
+    String order;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int n;
+
+    Object target;
+    MethodHandle setup;
+    MethodHandle run;
+    int[] keys;
+
+    @Setup(Level.Trial)
+    public void lookup() throws Throwable {
+        Class<?> suite = Class.forName("HeapBenchmark");
+        keys = (int[]) method(suite, "keys", String.class, int.class).invoke(null, order, n);
+        for (Object candidate : (List<?>) method(suite, "benches").invoke(null)) {
+            if (candidate.toString().equals(bench)) {
+                target = candidate;
+            }
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("no such benchmark: " + bench);
+        }
+        Class<?> type = Class.forName("HeapBenchmark$Bench");
+        setup = MethodHandles.lookup().unreflect(method(type, "setup", int[].class)).asType(BENCH);
+        run = MethodHandles.lookup().unreflect(method(type, "run", int[].class)).asType(BENCH);
+    }
+
+    static Method method(Class<?> type, String name, Class<?>... parameters) throws NoSuchMethodException {
+        Method method = type.getDeclaredMethod(name, parameters);
+        method.setAccessible(true);
+        return method;
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() throws Throwable {
+        setup.invokeExact(target, keys);
+    }
+
+    @Benchmark
+    public void run() throws Throwable {
+        run.invokeExact(target, keys);
+    }
+}